@@ -0,0 +1,33 @@
+package com.ziqni.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every result carries its allocation rate, and writes the results
+ * as JSON to compare against earlier runs. Accepts the usual JMH arguments, e.g. a benchmark name regex.
+ * <p>
+ * java -jar target/benchmarks.jar [regex]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        final var commandLine = new CommandLineOptions(args);
+        final var result = "benchmarks-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json";
+
+        final var options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+
+        new Runner(options).run();
+    }
+}
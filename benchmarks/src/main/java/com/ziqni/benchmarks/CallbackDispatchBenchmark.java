@@ -0,0 +1,90 @@
+package com.ziqni.benchmarks;
+
+import com.ziqni.member.inbound.InboundPipeline;
+import com.ziqni.member.inbound.InboundType;
+import com.ziqni.member.inbound.WaitStrategy;
+import com.ziqni.util.CallbackDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Hand off cost of a callback message from the socket thread to its handler, through the virtual thread
+ * dispatcher and through the ring buffer pipeline. Each invocation publishes a burst and waits until every
+ * message was handled, so the figure is per message including the handoff.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+AlwaysPreTouch"})
+public class CallbackDispatchBenchmark {
+
+    private static final int BURST = 1024;
+    private static final String[] KEYS = {"contest-1", "contest-2", "contest-3", "contest-4", "contest-5", "contest-6", "contest-7", "contest-8"};
+
+    private final AtomicLong handled = new AtomicLong();
+    private long expected;
+
+    private CallbackDispatcher dispatcher;
+    private BiConsumer<Object, String> dispatching;
+    private InboundPipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = new CallbackDispatcher(Duration.ofMillis(50));
+        dispatching = dispatcher.dispatching("benchmark", message -> message, (headers, message) -> handled.incrementAndGet());
+
+        pipeline = InboundPipeline.builder(BURST * 2)
+                .waitStrategy(WaitStrategy.yielding())
+                .consumer("benchmark")
+                    .on(InboundType.LEADERBOARD_UPDATE, (message, sequence, endOfBatch) -> handled.incrementAndGet())
+                    .add()
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.close();
+        pipeline.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void virtualThreadDispatcher() {
+        expected += BURST;
+        for (int i = 0; i < BURST; i++)
+            dispatching.accept(null, KEYS[i & 7]);
+        awaitHandled();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void ringBufferPipeline() {
+        expected += BURST;
+        for (int i = 0; i < BURST; i++)
+            pipeline.publish(InboundType.LEADERBOARD_UPDATE, KEYS[i & 7]);
+        awaitHandled();
+    }
+
+    private void awaitHandled() {
+        while (handled.get() < expected)
+            Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,80 @@
+package com.ziqni.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziqni.admin.sdk.JSON;
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serialising createEvents batches at the sizes EventPublisher sends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+AlwaysPreTouch"})
+public class EventBatchBenchmark {
+
+    // Fixed so serialised output is identical from run to run
+    private static final OffsetDateTime TIMESTAMP = OffsetDateTime.of(2024, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Param({"1", "50", "500"})
+    public int batchSize;
+
+    private ObjectMapper mapper;
+    private List<CreateEventRequest> batch;
+
+    @Setup
+    public void setUp() {
+        mapper = JSON.getDefault().getMapper();
+        batch = build();
+    }
+
+    @Benchmark
+    public List<CreateEventRequest> buildBatch() {
+        return build();
+    }
+
+    @Benchmark
+    public byte[] serializeBatch() throws Exception {
+        return mapper.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeBatch() throws Exception {
+        return mapper.writeValueAsBytes(build());
+    }
+
+    private List<CreateEventRequest> build() {
+        final var events = new ArrayList<CreateEventRequest>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            events.add(new CreateEventRequest()
+                    .memberRefId("member-" + i)
+                    .action("buy")
+                    .entityRefId("apples")
+                    .sourceValue(5.0 + i)
+                    .eventRefId("event-" + i)
+                    .unitOfMeasure("other")
+                    .transactionTimestamp(TIMESTAMP)
+                    .putCustomFieldsItem("condition", "fresh"));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,84 @@
+package com.ziqni.benchmarks;
+
+import com.ziqni.member.leaderboard.LeaderboardDelta;
+import com.ziqni.member.leaderboard.LeaderboardDiffEngine;
+import com.ziqni.member.sdk.model.Leaderboard;
+import com.ziqni.member.sdk.model.LeaderboardEntry;
+import com.ziqni.member.sdk.model.LeaderboardMember;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The leaderboard update diff the member sample runs on every leaderboard message. Alternates between two
+ * standings where a tenth of the participants swapped places.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+AlwaysPreTouch"})
+public class LeaderboardDiffBenchmark {
+
+    /** 21 is the sample's filter: top 10 plus 5 above and below */
+    @Param({"21", "200", "2000"})
+    public int participants;
+
+    private LeaderboardDiffEngine engine;
+    private Leaderboard[] updates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // Fixed seed so every run diffs the same standings
+        final var random = new Random(42);
+        final var order = new ArrayList<Integer>();
+        for (int i = 0; i < participants; i++)
+            order.add(i);
+
+        final var first = leaderboard(order);
+        for (int i = 0; i < participants / 10; i++) {
+            final var a = random.nextInt(participants);
+            final var b = random.nextInt(participants);
+            final var swap = order.get(a);
+            order.set(a, order.get(b));
+            order.set(b, swap);
+        }
+        final var second = leaderboard(order);
+
+        updates = new Leaderboard[]{first, second};
+        engine = new LeaderboardDiffEngine();
+        engine.update(first);
+    }
+
+    @Benchmark
+    public LeaderboardDelta update() {
+        next ^= 1;
+        return engine.update(updates[next]);
+    }
+
+    private static Leaderboard leaderboard(List<Integer> order) {
+        final var entries = new ArrayList<LeaderboardEntry>(order.size());
+        for (int rank = 0; rank < order.size(); rank++) {
+            entries.add(new LeaderboardEntry()
+                    .rank(rank + 1)
+                    .score((double) (order.size() - rank) * 10)
+                    .members(List.of(new LeaderboardMember().name("member-" + order.get(rank)))));
+        }
+        return new Leaderboard().id("leaderboard-1").leaderboardEntries(entries);
+    }
+}
@@ -3,14 +3,31 @@ package com.ziqni;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.ziqni.admin.ZiqniAdminSample;
 import com.ziqni.admin.sdk.JSON;
+import com.ziqni.load.FakeLoadTarget;
+import com.ziqni.load.LoadGenerator;
+import com.ziqni.load.LoadGeneratorConfig;
+import com.ziqni.load.LoadTarget;
+import com.ziqni.load.ZiqniLoadTarget;
 import com.ziqni.member.ZiqniMemberSample;
+import com.ziqni.metrics.Metrics;
+import com.ziqni.metrics.MetricsReporter;
+import com.ziqni.metrics.PrometheusTextFileExporter;
 
 import java.io.IOException;
 import java.util.Scanner;
 
 public class Main {
 
+    /**
+     * With no arguments the samples are chosen from an interactive menu, any arguments run headless, see
+     * {@link LoadGeneratorConfig} for the options.
+     */
     public static void main(String[] args) throws Exception {
+        if(args.length > 0) {
+            runHeadless(LoadGeneratorConfig.fromArgs(args));
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         while (true) {
 
@@ -57,6 +74,35 @@ public class Main {
         scanner.close();
     }
 
+    private static void runHeadless(LoadGeneratorConfig config) throws Exception {
+        final var reporter = config.metricsFile() == null ? null
+                : new MetricsReporter(Metrics.registry(), new PrometheusTextFileExporter(config.metricsFile()), config.metricsInterval());
+        try {
+            runHeadlessMode(config);
+        } finally {
+            if(reporter != null)
+                reporter.close();
+        }
+    }
+
+    private static void runHeadlessMode(LoadGeneratorConfig config) throws Exception {
+        switch (config.mode()) {
+            case ADMIN -> runAdminSample(config.apiKey(), config.space());
+            case MEMBER -> runMemberSample(config.apiKey(), config.space(), config.memberRefId());
+            case LOAD -> {
+                com.ziqni.member.sdk.JSON.getDefault().getMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+                JSON.getDefault().getMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+                try (LoadTarget target = config.target() == LoadGeneratorConfig.Target.FAKE ? new FakeLoadTarget(config) : new ZiqniLoadTarget(config)) {
+                    final var report = new LoadGenerator(config, target).run();
+                    report.write(config.output());
+                    System.out.print(report);
+                    System.out.println("Percentile distributions written to " + config.output().toAbsolutePath());
+                }
+            }
+        }
+    }
+
     private static String requestApiKey(Scanner scanner) {
         // Step 2: Prompt for API Key
         System.out.print("Please enter your API key: ");
@@ -0,0 +1,53 @@
+package com.ziqni.admin;
+
+import com.google.common.eventbus.Subscribe;
+import com.ziqni.admin.sdk.ZiqniAdminApiFactory;
+import com.ziqni.admin.sdk.context.WSClientConnected;
+import com.ziqni.admin.sdk.context.WSClientSevereFailure;
+import com.ziqni.util.StreamingReadiness;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Event driven replacement for polling getStreamingClient() and isConnected() with Thread.sleep.
+ */
+public class AdminStreamingReadiness extends StreamingReadiness {
+
+    /**
+     * Initialises the factory, starts its streaming client and completes once the client is connected.
+     */
+    public static CompletableFuture<Void> connect(ZiqniAdminApiFactory ziqniAdminApiFactory, Duration timeout) {
+        final var readiness = new AdminStreamingReadiness();
+
+        ziqniAdminApiFactory.initialise(() -> {
+                    ziqniAdminApiFactory.getZiqniAdminEventBus().register(readiness);
+                    try {
+                        return ziqniAdminApiFactory.getStreamingClient().start();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+                .whenComplete((started, throwable) -> {
+                    if(throwable != null)
+                        readiness.failed(throwable);
+                    else if(started == null || !started)
+                        readiness.failed("NOT_STARTED");
+                    else if(ziqniAdminApiFactory.getStreamingClient().isConnected())
+                        readiness.connected(); // Connected before the event reached us
+                });
+
+        return readiness.ready(timeout, ziqniAdminApiFactory::getZiqniAdminEventBus);
+    }
+
+    @Subscribe
+    public void onWSClientConnected(WSClientConnected change) {
+        if(change.getConnectedHeaders() != null)
+            connected();
+    }
+
+    @Subscribe
+    public void onWSClientSevereFailure(WSClientSevereFailure change) {
+        failed(change);
+    }
+}
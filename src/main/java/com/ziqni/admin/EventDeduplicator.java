@@ -0,0 +1,169 @@
+package com.ziqni.admin;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops events whose eventRefId was already submitted, without a round trip to the platform.
+ * <p>
+ * Two structures with fixed memory are consulted. A Bloom filter remembers every id seen within the time window.
+ * It rotates through two generations, so an id is remembered for at least one window and at most two. An exact LRU
+ * of the most recent ids confirms the filter's positives. An id the filter has seen but the LRU has not is counted
+ * as a false positive: either a real false positive or a duplicate older than the LRU. It is only dropped when
+ * dropUnconfirmed is set.
+ */
+public class EventDeduplicator {
+
+    private final int bits;
+    private final int hashes;
+    private final long windowNanos;
+    private final boolean dropUnconfirmed;
+    private final LinkedHashMap<String, Boolean> recent;
+
+    private volatile AtomicLongArray current;
+    private volatile AtomicLongArray previous;
+    private volatile long rotateAtNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param expectedPerWindow ids expected within one window, sizes the filter
+     * @param falsePositiveRate target false positive rate of the filter at that load
+     * @param exactCapacity number of recent ids kept in the exact LRU
+     */
+    public EventDeduplicator(int expectedPerWindow, double falsePositiveRate, Duration window, int exactCapacity, boolean dropUnconfirmed) {
+        if(expectedPerWindow < 1 || exactCapacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("Invalid deduplicator sizing");
+
+        final var optimalBits = Math.ceil(-expectedPerWindow * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, optimalBits));
+        this.hashes = Math.max(1, (int) Math.round(optimalBits / expectedPerWindow * Math.log(2)));
+        this.windowNanos = window.toNanos();
+        this.dropUnconfirmed = dropUnconfirmed;
+        this.current = new AtomicLongArray((bits + 63) >>> 6);
+        this.previous = new AtomicLongArray((bits + 63) >>> 6);
+        this.rotateAtNanos = System.nanoTime() + windowNanos;
+        this.recent = new LinkedHashMap<>(Math.min(exactCapacity, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > exactCapacity;
+            }
+        };
+    }
+
+    /**
+     * Records the id and reports whether it should be dropped as a duplicate. Events without an id are never
+     * treated as duplicates.
+     */
+    public boolean isDuplicate(String eventRefId) {
+        if(eventRefId == null)
+            return false;
+
+        rotateIfDue();
+
+        final var hash = hash(eventRefId);
+        final var h1 = (int) hash;
+        final var h2 = (int) (hash >>> 32);
+        final var filter = current;
+        final var older = previous;
+
+        boolean seen = true;
+        boolean seenBefore = true;
+        for (int i = 0; i < hashes; i++) {
+            final var bit = Math.floorMod(h1 + i * h2, bits);
+            if(!set(filter, bit))
+                seen = false;
+            if(seenBefore && !isSet(older, bit))
+                seenBefore = false;
+        }
+
+        final boolean confirmed;
+        synchronized (recent) {
+            confirmed = recent.put(eventRefId, Boolean.TRUE) != null;
+        }
+
+        if(!seen && !seenBefore) {
+            misses.increment();
+            return false;
+        }
+        if(confirmed) {
+            hits.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return dropUnconfirmed;
+    }
+
+    /**
+     * Removes the id from the exact index so a retry after a transport failure is let through. The filter
+     * cannot forget, the retry is counted as a false positive.
+     */
+    public void forget(String eventRefId) {
+        if(eventRefId == null)
+            return;
+        synchronized (recent) {
+            recent.remove(eventRefId);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long falsePositives() {
+        return falsePositives.sum();
+    }
+
+    private void rotateIfDue() {
+        if(System.nanoTime() - rotateAtNanos < 0)
+            return;
+
+        synchronized (this) {
+            if(System.nanoTime() - rotateAtNanos < 0)
+                return;
+            previous = current;
+            current = new AtomicLongArray((bits + 63) >>> 6);
+            rotateAtNanos = System.nanoTime() + windowNanos;
+        }
+    }
+
+    /**
+     * @return true if the bit was already set
+     */
+    private static boolean set(AtomicLongArray filter, int bit) {
+        final var index = bit >>> 6;
+        final var mask = 1L << bit;
+        var word = filter.get(index);
+        while ((word & mask) == 0) {
+            if(filter.compareAndSet(index, word, word | mask))
+                return false;
+            word = filter.get(index);
+        }
+        return true;
+    }
+
+    private static boolean isSet(AtomicLongArray filter, int bit) {
+        return (filter.get(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    private static long hash(String value) {
+        // FNV-1a over the chars, finished with the splitmix64 mixer to spread the bits over both halves
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,668 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.ZiqniAdminApiFactory;
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import com.ziqni.admin.sdk.model.ModelApiResponse;
+import com.ziqni.metrics.Counter;
+import com.ziqni.metrics.Gauge;
+import com.ziqni.metrics.Histogram;
+import com.ziqni.metrics.Metrics;
+import com.ziqni.metrics.MetricsRegistry;
+import com.ziqni.util.ByteBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects events into batches and sends each batch with a single createEvents call. A batch is flushed
+ * when it reaches maxBatchSize or when the oldest event in it has waited for the linger time.
+ * <p>
+ * Outstanding work is bounded by the number of createEvents calls in flight and by the estimated bytes of
+ * events accepted but not yet acknowledged. What happens to a publish beyond those limits is decided by the
+ * {@link OverflowPolicy}.
+ * <p>
+ * With an {@link EventSpool} configured every event is written ahead to the spool before it is queued, and
+ * acknowledged there once the platform has answered for its batch. Batches that fail in transport stay in the
+ * spool and are sent again by {@link #replayUnacknowledged()}.
+ * <p>
+ * Closing sends what was accepted before the close, spilled events included, for up to the linger time plus a
+ * second. Anything still unsent after that is failed, so no returned future is left pending.
+ */
+public class EventPublisher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventPublisher.class);
+
+    private static final long[] BATCH_SIZES = {1, 5, 10, 25, 50, 100, 250, 500, 1000};
+
+    // Queued by close to wake the flusher. An interrupt would close the spill's channels under a read or write
+    private static final PendingEvent WAKE = new PendingEvent(null, new CompletableFuture<>(), 0, 0);
+
+    public enum OverflowPolicy {
+        /** Block the publishing thread until capacity frees up */
+        BLOCK,
+        /** Fail the returned future immediately */
+        FAIL_FAST,
+        /** Write the event to disk and send it once capacity frees up */
+        SPILL_TO_DISK
+    }
+
+    private final Function<List<CreateEventRequest>, CompletableFuture<ModelApiResponse>> sender;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<PendingEvent> queue;
+    private final Semaphore requestPermits;
+    private final int maxInFlightRequests;
+    private final ByteBudget byteBudget;
+    private final OverflowPolicy overflowPolicy;
+    private final EventSpill spill;
+    private final EventSpool spool;
+    private final EventDeduplicator deduplicator;
+    private final EventValidator validator;
+    private final Thread flusher;
+
+    private final MetricsRegistry metrics;
+    private final Histogram roundTrip;
+    private final Histogram batchSize;
+    private final Counter transportFailures;
+    private final List<Gauge> gauges;
+
+    private volatile boolean closed = false;
+
+    // Publishes that passed the closed check and may still add to the queue or the spill
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    // Read back from the spill but not yet admitted, only touched by the flusher thread
+    private PendingEvent unspilled;
+
+    private EventPublisher(Builder builder) throws IOException {
+        this.sender = builder.sender;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.lingerNanos = builder.linger.toNanos();
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.maxInFlightRequests = builder.maxInFlightRequests;
+        this.requestPermits = new Semaphore(builder.maxInFlightRequests);
+        this.byteBudget = new ByteBudget(builder.maxInFlightBytes);
+        this.overflowPolicy = builder.overflowPolicy;
+        this.spill = builder.overflowPolicy == OverflowPolicy.SPILL_TO_DISK ? new EventSpill(builder.spillDirectory) : null;
+        this.spool = builder.spool;
+        this.deduplicator = builder.deduplicator;
+        this.validator = builder.validator;
+
+        this.metrics = builder.metrics;
+        this.roundTrip = metrics.timer("ziqni_create_events_seconds", "createEvents round trip time");
+        this.batchSize = metrics.histogram("ziqni_create_events_batch_size", "Events sent per createEvents call", BATCH_SIZES, 1);
+        this.transportFailures = metrics.counter("ziqni_create_events_failures_total", "createEvents calls that got no answer");
+        this.gauges = List.of(
+                metrics.gauge("ziqni_event_publisher_queued", "Events accepted and waiting for a batch", queue::size),
+                metrics.gauge("ziqni_event_publisher_in_flight_requests", "createEvents calls awaiting an answer", this::inFlightRequests),
+                metrics.gauge("ziqni_event_publisher_in_flight_bytes", "Estimated bytes of events not yet acknowledged", this::inFlightBytes),
+                metrics.gauge("ziqni_event_publisher_spilled", "Events spilled to disk", this::spilled));
+
+        this.flusher = Thread.ofPlatform().name("event-publisher").daemon(true).start(this::flushLoop);
+    }
+
+    public static Builder builder(ZiqniAdminApiFactory ziqniAdminApiFactory) {
+        return builder(events -> ziqniAdminApiFactory.getEventsApi().createEvents(events));
+    }
+
+    public static Builder builder(Function<List<CreateEventRequest>, CompletableFuture<ModelApiResponse>> sender) {
+        return new Builder(sender);
+    }
+
+    /**
+     * @return the id the platform assigned to the event, or a failed future if the event was rejected
+     */
+    public CompletableFuture<String> publish(CreateEventRequest event) {
+        publishing.incrementAndGet();
+        try {
+            // Checked after counting ourselves in, so the flusher cannot finish while this event is on its way
+            if(closed)
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Event publisher is closed"));
+            return accept(event);
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    private CompletableFuture<String> accept(CreateEventRequest event) {
+        if(validator != null) {
+            final var violation = validator.validate(event);
+            if(violation != null) {
+                errorCounter(violation.getErrorCode() == null ? violation.name() : violation.getErrorCode().toString(), "client").increment();
+                return CompletableFuture.failedFuture(new EventValidationException(violation));
+            }
+        }
+
+        if(deduplicator != null && deduplicator.isDuplicate(event.getEventRefId()))
+            return CompletableFuture.failedFuture(new DuplicateEventException(event.getEventRefId()));
+
+        final PendingEvent pending;
+        try {
+            pending = new PendingEvent(event, new CompletableFuture<>(), spool == null ? 0 : spool.append(event));
+        } catch (IOException e) {
+            if(deduplicator != null)
+                deduplicator.forget(event.getEventRefId());
+            return CompletableFuture.failedFuture(e);
+        }
+
+        enqueue(pending, overflowPolicy);
+        return pending.result;
+    }
+
+    /**
+     * Re-sends every spooled event that has not been acknowledged and is not currently in flight, e.g. after the
+     * streaming client reconnected or the process restarted. Replayed events keep their eventRefId.
+     *
+     * @return the number of events queued for resending
+     */
+    public int replayUnacknowledged() {
+        if(spool == null)
+            return 0;
+
+        try {
+            final var replayed = spool.replay((sequence, event) ->
+                    enqueue(new PendingEvent(event, new CompletableFuture<>(), sequence), OverflowPolicy.BLOCK)
+            );
+            if(replayed > 0)
+                logger.info("+++ Replaying {} unacknowledged events", replayed);
+            return replayed;
+        } catch (IOException e) {
+            logger.error("Failed to replay spooled events", e);
+            return 0;
+        }
+    }
+
+    private void enqueue(PendingEvent pending, OverflowPolicy overflowPolicy) {
+        try {
+            switch (overflowPolicy) {
+                case BLOCK -> {
+                    byteBudget.acquire(pending.bytes);
+                    try {
+                        queue.put(pending);
+                    } catch (InterruptedException e) {
+                        byteBudget.release(pending.bytes);
+                        throw e;
+                    }
+                }
+                case FAIL_FAST -> {
+                    if(!admit(pending))
+                        reject(pending, new RejectedExecutionException("Event publisher is at capacity"));
+                }
+                case SPILL_TO_DISK -> {
+                    // Once anything is spilled, later events follow it to disk so the backlog drains in order
+                    if(spill.size() > 0 || !admit(pending))
+                        spill.append(pending);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(pending, e);
+        } catch (IOException e) {
+            reject(pending, e);
+        }
+    }
+
+    private void reject(PendingEvent pending, Throwable throwable) {
+        // The caller is told it was not accepted, so it must not come back on a replay either
+        if(spool != null && pending.sequence > 0)
+            spool.acknowledge(pending.sequence);
+        fail(pending, throwable);
+    }
+
+    /**
+     * Every event that was not accepted is forgotten by the deduplicator first, so the caller can retry it with the
+     * same eventRefId as soon as its future fails.
+     */
+    private void fail(PendingEvent pending, Throwable throwable) {
+        if(deduplicator != null)
+            deduplicator.forget(pending.event.getEventRefId());
+        pending.result.completeExceptionally(throwable);
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    public int inFlightRequests() {
+        return maxInFlightRequests - requestPermits.availablePermits();
+    }
+
+    public long inFlightBytes() {
+        return byteBudget.inUse();
+    }
+
+    public int spilled() {
+        return spill == null ? 0 : spill.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        // A full queue needs no wake up, the flusher is busy with it
+        queue.offer(WAKE);
+        try {
+            flusher.join(TimeUnit.NANOSECONDS.toMillis(lingerNanos) + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        failUnsent();
+        // A closed publisher no longer reports, and a new one may take over the same gauges
+        gauges.forEach(metrics::remove);
+        if(spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                logger.error("Failed to close event spill", e);
+            }
+        }
+    }
+
+    /**
+     * Fails whatever the flusher did not get to before close gave up waiting for it.
+     */
+    private void failUnsent() {
+        final var failure = new RejectedExecutionException("Event publisher closed before the event was sent");
+        var failed = 0;
+
+        PendingEvent pending;
+        while ((pending = queue.poll()) != null) {
+            if(pending == WAKE)
+                continue;
+            byteBudget.release(pending.bytes);
+            reject(pending, failure);
+            failed++;
+        }
+
+        if(spill != null) {
+            try {
+                // The flusher owns unspilled while it runs
+                if(!flusher.isAlive() && unspilled != null) {
+                    reject(unspilled, failure);
+                    unspilled = null;
+                    failed++;
+                }
+                while ((pending = spill.poll()) != null) {
+                    reject(pending, failure);
+                    failed++;
+                }
+            } catch (IOException e) {
+                logger.error("Failed to read spilled events on close", e);
+            }
+        }
+
+        if(failed > 0)
+            logger.warn("+++ Event publisher closed with {} unsent events", failed);
+    }
+
+    private boolean admit(PendingEvent pending) {
+        if(!byteBudget.tryAcquire(pending.bytes))
+            return false;
+
+        if(!queue.offer(pending)) {
+            byteBudget.release(pending.bytes);
+            return false;
+        }
+        return true;
+    }
+
+    private void flushLoop() {
+        final var batch = new ArrayList<PendingEvent>(maxBatchSize);
+
+        while (!closed || hasUnsent()) {
+            var permitAcquired = false;
+            try {
+                if(spill != null)
+                    unspill();
+
+                final var first = queue.poll(closed ? 1 : 100, TimeUnit.MILLISECONDS);
+                if(first == null || first == WAKE)
+                    continue;
+
+                batch.add(first);
+                final var deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    if(queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        batch.removeIf(pending -> pending == WAKE);
+                        continue;
+                    }
+
+                    final var wait = deadline - System.nanoTime();
+                    final var next = wait > 0 && !closed ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if(next == null || next == WAKE)
+                        break;
+                    batch.add(next);
+                }
+
+                requestPermits.acquire();
+                permitAcquired = true;
+            } catch (InterruptedException e) {
+                // Not expected, close wakes the flusher through the queue. Send what was batched and carry on
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                batch.removeIf(pending -> pending == WAKE);
+            }
+
+            if(!batch.isEmpty()) {
+                if(!permitAcquired)
+                    requestPermits.acquireUninterruptibly();
+                send(List.copyOf(batch));
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean hasUnsent() {
+        return !queue.isEmpty() || publishing.get() > 0 || unspilled != null || spilled() > 0;
+    }
+
+    private void unspill() {
+        try {
+            while (true) {
+                if(unspilled == null)
+                    unspilled = spill.poll();
+                if(unspilled == null)
+                    return;
+
+                if(!byteBudget.tryAcquire(unspilled.bytes))
+                    return;
+
+                if(!queue.offer(unspilled)) {
+                    byteBudget.release(unspilled.bytes);
+                    return;
+                }
+                unspilled = null;
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read spilled events", e);
+        }
+    }
+
+    private void send(List<PendingEvent> batch) {
+        final var events = new ArrayList<CreateEventRequest>(batch.size());
+        long bytes = 0;
+        for (PendingEvent pending : batch) {
+            events.add(pending.event);
+            bytes += pending.bytes;
+        }
+        final var batchBytes = bytes;
+
+        batchSize.record(batch.size());
+        final var sentAt = System.nanoTime();
+        CompletableFuture<ModelApiResponse> request;
+        try {
+            request = sender.apply(events);
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+
+        request.whenComplete((response, throwable) -> {
+            // Released first, nothing below may keep the permit or the budget from being given back
+            requestPermits.release();
+            byteBudget.release(batchBytes);
+
+            final var answered = throwable == null && response != null;
+            roundTrip.recordNanosSince(sentAt);
+            if(!answered)
+                transportFailures.increment();
+            else if(response.getErrors() != null)
+                response.getErrors().forEach(this::countPlatformError);
+            if(spool != null)
+                settleSpool(batch, answered);
+            complete(batch, response, throwable);
+        });
+    }
+
+    /**
+     * The platform rejects with a generic 400 and gives the reason, e.g. 3214, in the detail.
+     */
+    private void countPlatformError(com.ziqni.admin.sdk.model.Error error) {
+        if(error.getDetail() == null || error.getDetail().isEmpty()) {
+            errorCounter(String.valueOf(error.getErrorCode()), "platform").increment();
+            return;
+        }
+        error.getDetail().forEach(detail -> errorCounter(String.valueOf(detail.getErrorCode()), "platform").increment());
+    }
+
+    /**
+     * Error counters are looked up per error, errors are rare enough that this stays off the hot path.
+     */
+    private Counter errorCounter(String code, String source) {
+        return metrics.counter("ziqni_event_errors_total", "Events rejected, by error code", "code", code, "source", source);
+    }
+
+    private void settleSpool(List<PendingEvent> batch, boolean answered) {
+        for (PendingEvent pending : batch) {
+            if(pending.sequence == 0)
+                continue;
+
+            // A rejection from the platform will not change on a resend, only transport failures are replayed
+            if(answered)
+                spool.acknowledge(pending.sequence);
+            else
+                spool.release(pending.sequence);
+        }
+    }
+
+    /**
+     * Settles each event on its own outcome. Results are matched to events by externalReference, which the platform
+     * fills in with the eventRefId; events without a result were rejected and fail with the errors for the batch.
+     */
+    private void complete(List<PendingEvent> batch, ModelApiResponse response, Throwable throwable) {
+        if(throwable != null || response == null) {
+            final var failure = throwable != null ? throwable : new IllegalStateException("No response to createEvents");
+            logger.error("+++ Error registering {} events: {}", batch.size(), failure.getMessage());
+            batch.forEach(pending -> fail(pending, failure));
+            return;
+        }
+
+        final var errors = response.getErrors() == null ? List.<com.ziqni.admin.sdk.model.Error>of() : response.getErrors();
+        final var results = response.getResults() == null ? List.<com.ziqni.admin.sdk.model.Result>of() : response.getResults();
+
+        final var byReference = new HashMap<String, PendingEvent>(batch.size() * 2);
+        for (PendingEvent pending : batch) {
+            if(pending.event.getEventRefId() != null)
+                byReference.putIfAbsent(pending.event.getEventRefId(), pending);
+        }
+
+        final var unmatched = new ArrayList<com.ziqni.admin.sdk.model.Result>();
+        for (var result : results) {
+            final var pending = result.getExternalReference() == null ? null : byReference.get(result.getExternalReference());
+            if(pending != null)
+                pending.result.complete(result.getId());
+            else
+                unmatched.add(result);
+        }
+
+        // Without references results are only trusted in request order when every event got one
+        if(!unmatched.isEmpty() && errors.isEmpty() && results.size() == batch.size()) {
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).result.complete(results.get(i).getId());
+            return;
+        }
+
+        final var rejected = batch.stream().filter(pending -> !pending.result.isDone()).toList();
+        if(rejected.isEmpty())
+            return;
+
+        logger.error("+++ Error registering {} of {} events: {}", rejected.size(), batch.size(), errors);
+        final var errorsByReference = errorsByReference(errors, byReference);
+        for (PendingEvent pending : rejected) {
+            final var own = errorsByReference.get(pending.event.getEventRefId());
+            fail(pending, new EventBatchException(own != null ? own : errors));
+        }
+    }
+
+    /**
+     * Errors that name the event in their modelId, so the caller gets the reason for its own event when there is one.
+     */
+    private static Map<String, List<com.ziqni.admin.sdk.model.Error>> errorsByReference(List<com.ziqni.admin.sdk.model.Error> errors, Map<String, PendingEvent> byReference) {
+        final var matched = new HashMap<String, List<com.ziqni.admin.sdk.model.Error>>();
+        for (var error : errors) {
+            if(error.getModelId() != null && byReference.containsKey(error.getModelId()))
+                matched.computeIfAbsent(error.getModelId(), id -> new ArrayList<>()).add(error);
+        }
+        return matched;
+    }
+
+    /**
+     * Rough size of the event on the wire, cheap enough to compute on every publish.
+     */
+    static int estimateBytes(CreateEventRequest event) {
+        int bytes = 256; // Field names, timestamp, numbers and JSON punctuation
+        bytes += length(event.getMemberRefId());
+        bytes += length(event.getAction());
+        bytes += length(event.getEntityRefId());
+        bytes += length(event.getEventRefId());
+        bytes += length(event.getUnitOfMeasure());
+        if(event.getCustomFields() != null)
+            bytes += event.getCustomFields().size() * 64;
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public static class EventValidationException extends RuntimeException {
+
+        private final EventValidator.Violation violation;
+
+        public EventValidationException(EventValidator.Violation violation) {
+            super("+++ Event rejected before submission: " + violation.getMessage());
+            this.violation = violation;
+        }
+
+        public EventValidator.Violation getViolation() {
+            return violation;
+        }
+    }
+
+    public static class DuplicateEventException extends RuntimeException {
+        public DuplicateEventException(String eventRefId) {
+            super("+++ Duplicate event dropped: " + eventRefId);
+        }
+    }
+
+    public static class EventBatchException extends RuntimeException {
+
+        private final transient List<com.ziqni.admin.sdk.model.Error> errors;
+
+        public EventBatchException(List<com.ziqni.admin.sdk.model.Error> errors) {
+            super("+++ Error registering events: " + errors);
+            this.errors = errors == null ? List.of() : errors;
+        }
+
+        public List<com.ziqni.admin.sdk.model.Error> getErrors() {
+            return errors;
+        }
+    }
+
+    record PendingEvent(CreateEventRequest event, CompletableFuture<String> result, int bytes, long sequence) {
+        PendingEvent(CreateEventRequest event, CompletableFuture<String> result, long sequence) {
+            this(event, result, estimateBytes(event), sequence);
+        }
+
+        PendingEvent withoutEvent() {
+            return new PendingEvent(null, result, 0, sequence);
+        }
+    }
+
+    public static class Builder {
+        private final Function<List<CreateEventRequest>, CompletableFuture<ModelApiResponse>> sender;
+        private int maxBatchSize = 500;
+        private Duration linger = Duration.ofMillis(5);
+        private int queueCapacity = 50_000;
+        private int maxInFlightRequests = 16;
+        private long maxInFlightBytes = 64L * 1024 * 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.FAIL_FAST;
+        private Path spillDirectory = Path.of(System.getProperty("java.io.tmpdir"), "ziqni-event-spill");
+        private EventSpool spool;
+        private EventDeduplicator deduplicator;
+        private EventValidator validator;
+        private MetricsRegistry metrics = Metrics.registry();
+
+        private Builder(Function<List<CreateEventRequest>, CompletableFuture<ModelApiResponse>> sender) {
+            this.sender = sender;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder linger(Duration linger) {
+            this.linger = linger;
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder maxInFlightRequests(int maxInFlightRequests) {
+            this.maxInFlightRequests = maxInFlightRequests;
+            return this;
+        }
+
+        public Builder maxInFlightBytes(long maxInFlightBytes) {
+            this.maxInFlightBytes = maxInFlightBytes;
+            return this;
+        }
+
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public Builder spillDirectory(Path spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        public Builder spool(EventSpool spool) {
+            this.spool = spool;
+            return this;
+        }
+
+        public Builder deduplicator(EventDeduplicator deduplicator) {
+            this.deduplicator = deduplicator;
+            return this;
+        }
+
+        public Builder validator(EventValidator validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        public Builder metrics(MetricsRegistry metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public EventPublisher build() {
+            if(maxBatchSize < 1 || queueCapacity < 1 || maxInFlightRequests < 1)
+                throw new IllegalArgumentException("maxBatchSize, queueCapacity and maxInFlightRequests must be positive");
+            try {
+                return new EventPublisher(this);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to create spill directory " + spillDirectory, e);
+            }
+        }
+    }
+}
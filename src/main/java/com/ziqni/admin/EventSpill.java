@@ -0,0 +1,116 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.JSON;
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Overflow storage for {@link EventPublisher}: events that do not fit in the in-memory budget are written to
+ * disk as JSON lines and read back in order once capacity frees up. Only the callers' futures stay on the heap.
+ */
+class EventSpill implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventSpill.class);
+
+    private static final int SEGMENT_EVENTS = 10_000;
+
+    private final Path directory;
+    private final Deque<Path> segments = new ArrayDeque<>();
+    private final Deque<EventPublisher.PendingEvent> results = new ArrayDeque<>();
+
+    private BufferedWriter writer;
+    private Path writerSegment;
+    private int writerCount = 0;
+    private BufferedReader reader;
+    private Path readerSegment;
+    private long segmentSequence = 0;
+
+    EventSpill(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    synchronized void append(EventPublisher.PendingEvent pending) throws IOException {
+        if(writer == null || writerCount >= SEGMENT_EVENTS)
+            roll();
+
+        writer.write(JSON.getDefault().getMapper().writeValueAsString(pending.event()));
+        writer.newLine();
+        writerCount++;
+        results.addLast(pending.withoutEvent());
+    }
+
+    /**
+     * @return the oldest spilled event, or null if nothing is spilled
+     */
+    synchronized EventPublisher.PendingEvent poll() throws IOException {
+        while (!results.isEmpty()) {
+            if(reader == null) {
+                readerSegment = segments.pollFirst();
+                if(readerSegment == null) {
+                    // Read the segment still being written, rolling here would start a new file for every poll
+                    if(writer == null)
+                        return null;
+                    readerSegment = writerSegment;
+                }
+                reader = Files.newBufferedReader(readerSegment, StandardCharsets.UTF_8);
+            }
+
+            final var reading = readerSegment.equals(writerSegment);
+            if(reading)
+                writer.flush();
+
+            final var line = reader.readLine();
+            if(line == null) {
+                if(reading)
+                    return null; // Caught up with the writer, the reader picks up from here once more is flushed
+                reader.close();
+                Files.deleteIfExists(readerSegment);
+                reader = null;
+                continue;
+            }
+
+            final var event = JSON.getDefault().getMapper().readValue(line, CreateEventRequest.class);
+            final var spilled = results.pollFirst();
+            return new EventPublisher.PendingEvent(event, spilled.result(), spilled.sequence());
+        }
+        return null;
+    }
+
+    synchronized int size() {
+        return results.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(writer != null)
+            writer.close();
+        if(reader != null)
+            reader.close();
+        if(!results.isEmpty())
+            logger.warn("Closing event spill with {} unsent events in [{}]", results.size(), directory);
+    }
+
+    private void roll() throws IOException {
+        if(writer != null) {
+            writer.close();
+            // A segment the reader is already in is deleted by the reader once it reaches the end
+            if(!writerSegment.equals(readerSegment))
+                segments.addLast(writerSegment);
+            writer = null;
+        }
+        writerSegment = directory.resolve("spill-" + ProcessHandle.current().pid() + "-" + (segmentSequence++) + ".jsonl");
+        writer = Files.newBufferedWriter(writerSegment, StandardCharsets.UTF_8);
+        writerCount = 0;
+    }
+}
@@ -0,0 +1,394 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.JSON;
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log for events on their way to the EventsApi. Every event is appended to a memory mapped segment
+ * before it is sent and acknowledged once the platform has accepted it. Anything not acknowledged, after a
+ * reconnect or a restart, can be replayed with its original eventRefId so resends stay idempotent.
+ * <p>
+ * Segments are forced to disk by a background task every flush interval (group commit) rather than per event,
+ * so a crash can lose at most the last interval of appends.
+ * <p>
+ * Record layout: int payload length, int CRC-32C of sequence and payload, long sequence, payload (JSON). A zero
+ * length marks the end of a segment. Recovery and replay stop reading a segment at the first record that is torn
+ * or fails its checksum.
+ * <p>
+ * Mappings are left to the garbage collector to release. Unmapping by hand would crash the JVM if a commit or
+ * replay still touched the buffer, so a deleted segment keeps its pages until its buffer is collected.
+ */
+public class EventSpool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventSpool.class);
+
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ConcurrentSkipListSet<Long> unacknowledged = new ConcurrentSkipListSet<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService committer;
+
+    private long nextSequence = 1;
+    private volatile long durableSequence = 0;
+    private volatile long checkpoint = 0;
+
+    public EventSpool(Path directory, int segmentBytes, Duration flushInterval) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = segmentBytes;
+        this.checkpoint = readCheckpoint();
+        recover();
+
+        this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "event-spool-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final var interval = flushInterval.toMillis();
+        this.committer.scheduleWithFixedDelay(this::commit, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends the event and marks it as in flight. An event without an eventRefId is given one first, so it is
+     * sent with the same id on every replay.
+     *
+     * @return the sequence number to acknowledge once the platform accepted the event
+     */
+    public long append(CreateEventRequest event) throws IOException {
+        if(event.getEventRefId() == null)
+            event.eventRefId(UUID.randomUUID().toString());
+
+        final var payload = JSON.getDefault().getMapper().writeValueAsBytes(event);
+        if(payload.length + RECORD_HEADER_BYTES * 2 > segmentBytes)
+            throw new IOException("Event of " + payload.length + " bytes does not fit in a spool segment");
+
+        final long sequence;
+        synchronized (this) {
+            var segment = current();
+            if(segment == null || segment.buffer.remaining() < payload.length + RECORD_HEADER_BYTES * 2)
+                segment = roll();
+
+            sequence = nextSequence++;
+            segment.buffer.putInt(payload.length).putInt(checksum(sequence, payload)).putLong(sequence).put(payload);
+            segment.lastSequence = sequence;
+            segment.dirty = true;
+
+            // Registered under the lock so a concurrent commit can never checkpoint past it
+            unacknowledged.add(sequence);
+            inFlight.add(sequence);
+        }
+
+        return sequence;
+    }
+
+    public void acknowledge(long sequence) {
+        inFlight.remove(sequence);
+        unacknowledged.remove(sequence);
+    }
+
+    /**
+     * The event was not delivered, make it eligible for {@link #replay(BiConsumer)}.
+     */
+    public void release(long sequence) {
+        inFlight.remove(sequence);
+    }
+
+    /**
+     * Hands every unacknowledged event that is not currently in flight to the consumer, oldest first, and marks
+     * it in flight again.
+     *
+     * @return the number of events replayed
+     */
+    public int replay(BiConsumer<Long, CreateEventRequest> consumer) throws IOException {
+        final List<Segment> reading = new ArrayList<>();
+        final List<ByteBuffer> readers = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                if(segment.lastSequence > checkpoint) {
+                    // Held so a commit does not delete the file under the reader
+                    segment.readers++;
+                    reading.add(segment);
+                    readers.add(segment.buffer.duplicate().flip());
+                }
+            }
+        }
+
+        int replayed = 0;
+        try {
+            for (int i = 0; i < readers.size(); i++) {
+                final var reader = readers.get(i);
+                final var path = reading.get(i).path;
+                Record record;
+                while ((record = read(reader, path)) != null) {
+                    if(!unacknowledged.contains(record.sequence()) || !inFlight.add(record.sequence()))
+                        continue;
+
+                    final CreateEventRequest event;
+                    try {
+                        event = JSON.getDefault().getMapper().readValue(record.payload(), CreateEventRequest.class);
+                    } catch (IOException e) {
+                        inFlight.remove(record.sequence());
+                        logger.warn("Stopping replay of [{}] at unreadable event {}", path, record.sequence(), e);
+                        break;
+                    }
+                    consumer.accept(record.sequence(), event);
+                    replayed++;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                for (Segment segment : reading) {
+                    segment.readers--;
+                    if(segment.retired && segment.readers == 0) {
+                        try {
+                            segment.delete();
+                        } catch (IOException e) {
+                            logger.warn("Failed to delete spool segment [{}]", segment.path, e);
+                        }
+                    }
+                }
+            }
+        }
+        return replayed;
+    }
+
+    public int unacknowledgedCount() {
+        return unacknowledged.size();
+    }
+
+    public long durableSequence() {
+        return durableSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        committer.shutdown();
+        try {
+            // Let a running commit finish before the last one below
+            if(!committer.awaitTermination(5, TimeUnit.SECONDS))
+                logger.warn("Event spool commit still running on close");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        synchronized (this) {
+            for (Segment segment : segments)
+                segment.channel.close();
+            segments.clear();
+        }
+    }
+
+    /**
+     * Group commit: force dirty segments, advance the checkpoint past everything acknowledged and drop
+     * segments that hold nothing unacknowledged.
+     */
+    private void commit() {
+        try {
+            final List<Segment> dirty = new ArrayList<>();
+            final long appended;
+            synchronized (this) {
+                for (Segment segment : segments) {
+                    if(segment.dirty) {
+                        segment.dirty = false;
+                        dirty.add(segment);
+                    }
+                }
+                appended = nextSequence - 1;
+            }
+
+            for (Segment segment : dirty)
+                segment.buffer.force();
+            durableSequence = appended;
+
+            final var oldest = unacknowledged.ceiling(Long.MIN_VALUE);
+            final var newCheckpoint = oldest == null ? appended : Math.min(appended, oldest - 1);
+            if(newCheckpoint > checkpoint) {
+                writeCheckpoint(newCheckpoint);
+                checkpoint = newCheckpoint;
+                deleteCheckpointedSegments();
+            }
+        } catch (Exception e) {
+            logger.error("Event spool commit failed", e);
+        }
+    }
+
+    private synchronized void deleteCheckpointedSegments() throws IOException {
+        // Keep the segment being written even if it is fully acknowledged
+        while (segments.size() > 1 && segments.get(0).lastSequence <= checkpoint) {
+            final var segment = segments.remove(0);
+            segment.retired = true;
+            // A replay still reading the segment deletes it when done
+            if(segment.readers == 0)
+                segment.delete();
+        }
+    }
+
+    private Segment current() {
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    }
+
+    private Segment roll() throws IOException {
+        final var previous = current();
+        final var index = previous == null ? 0 : previous.index + 1;
+        final var segment = Segment.open(directory.resolve(SEGMENT_PREFIX + String.format("%019d", index) + SEGMENT_SUFFIX), index, segmentBytes);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        nextSequence = checkpoint + 1;
+
+        final List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path path : paths) {
+            final var name = path.getFileName().toString();
+            final var index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            final var segment = Segment.open(path, index, (int) Math.max(segmentBytes, Files.size(path)));
+
+            // Leaves the buffer after the last good record so appends continue from there, over any torn record
+            Record record;
+            while ((record = read(segment.buffer, path)) != null) {
+                final var sequence = record.sequence();
+                segment.lastSequence = sequence;
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                if(sequence > checkpoint)
+                    unacknowledged.add(sequence);
+            }
+
+            // Clear everything after a bad record, so appends over it cannot run into stale records that check out
+            final var buffer = segment.buffer;
+            if(buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) != 0) {
+                buffer.put(buffer.position(), new byte[buffer.remaining()]);
+                segment.dirty = true;
+            }
+            segments.add(segment);
+        }
+
+        if(!unacknowledged.isEmpty())
+            logger.info("Recovered {} unacknowledged events from [{}]", unacknowledged.size(), directory);
+    }
+
+    private long readCheckpoint() throws IOException {
+        final var file = directory.resolve(CHECKPOINT_FILE);
+        if(!Files.exists(file))
+            return 0;
+        return ByteBuffer.wrap(Files.readAllBytes(file)).getLong();
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        final var temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+            channel.force(false);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the record at the buffer's position. Returns null at the end of the segment or at a record that is torn
+     * or fails its checksum, leaving the position at the start of it; nothing after such a record can be trusted.
+     */
+    private static Record read(ByteBuffer buffer, Path path) {
+        if(buffer.remaining() < RECORD_HEADER_BYTES)
+            return null;
+
+        final var start = buffer.position();
+        final var length = buffer.getInt();
+        if(length == 0) {
+            buffer.position(start);
+            return null;
+        }
+
+        final var checksum = buffer.getInt();
+        final var sequence = buffer.getLong();
+        if(length < 0 || length > buffer.remaining()) {
+            logger.warn("Torn record at offset {} of [{}], ignoring the rest of the segment", start, path);
+            buffer.position(start);
+            return null;
+        }
+
+        final var payload = new byte[length];
+        buffer.get(payload);
+        if(checksum(sequence, payload) != checksum) {
+            logger.warn("Checksum mismatch at offset {} of [{}], ignoring the rest of the segment", start, path);
+            buffer.position(start);
+            return null;
+        }
+        return new Record(sequence, payload);
+    }
+
+    private static int checksum(long sequence, byte[] payload) {
+        final var crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private record Record(long sequence, byte[] payload) {}
+
+    private static final class Segment {
+        private final Path path;
+        private final long index;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private volatile long lastSequence = 0;
+        private boolean dirty = false;
+
+        // Guarded by the spool
+        private int readers = 0;
+        private boolean retired = false;
+
+        private Segment(Path path, long index, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+
+        private static Segment open(Path path, long index, int size) throws IOException {
+            final var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, index, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+}
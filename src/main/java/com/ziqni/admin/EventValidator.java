@@ -0,0 +1,254 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.ZiqniAdminApiFactory;
+import com.ziqni.admin.sdk.model.ActionType;
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import com.ziqni.admin.sdk.model.Member;
+import com.ziqni.admin.sdk.model.QueryRequest;
+import com.ziqni.admin.sdk.model.UnitOfMeasure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Rejects events the platform would reject anyway, before they cost a round trip. Structural checks (member and
+ * points and action set) always apply. Unit of measure and action keys are checked against a catalogue that is
+ * loaded through the admin API and refreshed periodically; until the first load completes those checks are skipped.
+ * Call {@link #refresh()} once the client is connected to load it straight away.
+ * <p>
+ * Known member enforcement checks memberRefIds against those registered through {@link #registerKnownMembers} and,
+ * with a members loader, every member of the space as of the last refresh. Until that first load completes the
+ * check is skipped.
+ * Rejected events are kept in a bounded quarantine for inspection.
+ */
+public class EventValidator implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventValidator.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    public enum Violation {
+        MEMBER_NOT_SET(3214, "error.at_least_member_id_or_member_ref_id_should_exist"),
+        POINTS_NOT_SET(3018, "error.points_is_not_set"),
+        UNKNOWN_UNIT_OF_MEASURE(3226, "error.unit_of_measure_with_given_key_does_not_exist"),
+        ACTION_NOT_SET(null, "action is not set"),
+        UNKNOWN_ACTION(null, "action type with given key does not exist"),
+        UNKNOWN_MEMBER(null, "member with given reference id is not known");
+
+        private final Integer errorCode;
+        private final String message;
+
+        Violation(Integer errorCode, String message) {
+            this.errorCode = errorCode;
+            this.message = message;
+        }
+
+        /**
+         * @return the platform error code this violation would have produced, or null for local only checks
+         */
+        public Integer getErrorCode() {
+            return errorCode;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public record Quarantined(CreateEventRequest event, Violation violation) {}
+
+    private final Supplier<CompletableFuture<Set<String>>> unitsOfMeasureLoader;
+    private final Supplier<CompletableFuture<Set<String>>> actionsLoader;
+    private final Supplier<CompletableFuture<Set<String>>> membersLoader;
+    private final boolean enforceKnownMembers;
+    private final Set<String> knownMembers = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Quarantined> quarantine;
+    private final ScheduledExecutorService refresher;
+
+    private volatile Set<String> unitsOfMeasure = null;
+    private volatile Set<String> actions = null;
+    private volatile Set<String> loadedMembers = null;
+
+    public EventValidator(Supplier<CompletableFuture<Set<String>>> unitsOfMeasureLoader,
+                          Supplier<CompletableFuture<Set<String>>> actionsLoader,
+                          boolean enforceKnownMembers,
+                          int quarantineCapacity,
+                          Duration refreshInterval) {
+        this(unitsOfMeasureLoader, actionsLoader, null, enforceKnownMembers, quarantineCapacity, refreshInterval);
+    }
+
+    /**
+     * @param membersLoader loads the memberRefIds of every member, null to know only the registered ones
+     */
+    public EventValidator(Supplier<CompletableFuture<Set<String>>> unitsOfMeasureLoader,
+                          Supplier<CompletableFuture<Set<String>>> actionsLoader,
+                          Supplier<CompletableFuture<Set<String>>> membersLoader,
+                          boolean enforceKnownMembers,
+                          int quarantineCapacity,
+                          Duration refreshInterval) {
+        this.unitsOfMeasureLoader = unitsOfMeasureLoader;
+        this.actionsLoader = actionsLoader;
+        this.membersLoader = membersLoader;
+        this.enforceKnownMembers = enforceKnownMembers;
+        this.quarantine = new ArrayBlockingQueue<>(quarantineCapacity);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "event-validator-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public static EventValidator forAdminApi(ZiqniAdminApiFactory ziqniAdminApiFactory, Duration refreshInterval) {
+        return forAdminApi(ziqniAdminApiFactory, refreshInterval, false);
+    }
+
+    /**
+     * @param enforceKnownMembers also reject events for memberRefIds the space does not have. Every member is read
+     *                            on each refresh, so keep this for spaces whose member list fits in memory.
+     */
+    public static EventValidator forAdminApi(ZiqniAdminApiFactory ziqniAdminApiFactory, Duration refreshInterval, boolean enforceKnownMembers) {
+        return new EventValidator(
+                () -> loadAllKeys((skip, limit) -> ziqniAdminApiFactory.getUnitsOfMeasureApi()
+                        .getUnitsOfMeasureByQuery(new QueryRequest().skip(skip).limit(limit))
+                        .thenApply(response -> keys(response.getErrors(), response.getResults(), UnitOfMeasure::getKey))),
+                () -> loadAllKeys((skip, limit) -> ziqniAdminApiFactory.getActionTypesApi()
+                        .getActionTypesByQuery(new QueryRequest().skip(skip).limit(limit))
+                        .thenApply(response -> keys(response.getErrors(), response.getResults(), ActionType::getKey))),
+                enforceKnownMembers ? () -> loadMemberRefIds(MemberQueryStream.forAdminApi(ziqniAdminApiFactory, PAGE_SIZE)) : null,
+                enforceKnownMembers,
+                10_000,
+                refreshInterval
+        );
+    }
+
+    /**
+     * Walks every member by id cursor on a virtual thread, the stream blocks between pages.
+     */
+    static CompletableFuture<Set<String>> loadMemberRefIds(MemberQueryStream members) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (var stream = members.stream(QueryRequest::new, "id", Member::getId)) {
+                return stream.map(Member::getMemberRefId).filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+            }
+        }, runnable -> Thread.ofVirtual().name("event-validator-members").start(runnable));
+    }
+
+    /**
+     * @return the first violation found, or null if the event may be sent
+     */
+    public Violation validate(CreateEventRequest event) {
+        final var violation = check(event);
+        if(violation != null && !quarantine.offer(new Quarantined(event, violation)))
+            logger.warn("Event quarantine is full, dropping {} for event [{}]", violation, event.getEventRefId());
+        return violation;
+    }
+
+    /**
+     * Adds members known to exist, e.g. from a getMembersByQuery result.
+     */
+    public void registerKnownMembers(Collection<String> memberRefIds) {
+        knownMembers.addAll(memberRefIds);
+    }
+
+    public List<Quarantined> drainQuarantine() {
+        final var drained = new ArrayList<Quarantined>(quarantine.size());
+        quarantine.drainTo(drained);
+        return drained;
+    }
+
+    public CompletableFuture<Void> refresh() {
+        final var units = unitsOfMeasureLoader.get()
+                .thenAccept(keys -> unitsOfMeasure = Set.copyOf(keys));
+        final var actionKeys = actionsLoader.get()
+                .thenAccept(keys -> actions = Set.copyOf(keys));
+        final var members = membersLoader == null
+                ? CompletableFuture.<Void>completedFuture(null)
+                : membersLoader.get().thenAccept(keys -> loadedMembers = Set.copyOf(keys));
+
+        return CompletableFuture.allOf(units, actionKeys, members)
+                .exceptionally(throwable -> {
+                    // Keep validating against the previous catalogue
+                    logger.warn("Failed to refresh the event validation catalogue", throwable);
+                    return null;
+                });
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private Violation check(CreateEventRequest event) {
+        if(isBlank(event.getMemberRefId()) && isBlank(event.getMemberId()))
+            return Violation.MEMBER_NOT_SET;
+
+        if(event.getSourceValue() == null)
+            return Violation.POINTS_NOT_SET;
+
+        // Checked before the catalogue, whose key set cannot be asked about a null
+        if(isBlank(event.getAction()))
+            return Violation.ACTION_NOT_SET;
+
+        final var units = unitsOfMeasure;
+        if(units != null && event.getUnitOfMeasure() != null && !units.contains(event.getUnitOfMeasure()))
+            return Violation.UNKNOWN_UNIT_OF_MEASURE;
+
+        final var actionKeys = actions;
+        if(actionKeys != null && !actionKeys.contains(event.getAction()))
+            return Violation.UNKNOWN_ACTION;
+
+        if(enforceKnownMembers && event.getMemberRefId() != null && !knownMembers.contains(event.getMemberRefId())) {
+            final var members = loadedMembers;
+            if(membersLoader == null || (members != null && !members.contains(event.getMemberRefId())))
+                return Violation.UNKNOWN_MEMBER;
+        }
+
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * An error response fails the load, so a refresh keeps the previous catalogue instead of installing an empty one.
+     */
+    static <T> List<String> keys(List<com.ziqni.admin.sdk.model.Error> errors, List<T> results, Function<T, String> key) {
+        if(errors != null && !errors.isEmpty())
+            throw new IllegalStateException("Catalogue query failed: " + errors);
+        if(results == null)
+            throw new IllegalStateException("Catalogue query returned no results");
+        return results.stream().map(key).filter(Objects::nonNull).toList();
+    }
+
+    private static CompletableFuture<Set<String>> loadAllKeys(BiFunction<Integer, Integer, CompletableFuture<List<String>>> page) {
+        return loadPage(page, 0, new HashSet<>());
+    }
+
+    private static CompletableFuture<Set<String>> loadPage(BiFunction<Integer, Integer, CompletableFuture<List<String>>> page, int skip, Set<String> keys) {
+        return page.apply(skip, PAGE_SIZE).thenCompose(results -> {
+            keys.addAll(results);
+            return results.size() < PAGE_SIZE
+                    ? CompletableFuture.completedFuture(keys)
+                    : loadPage(page, skip + PAGE_SIZE, keys);
+        });
+    }
+}
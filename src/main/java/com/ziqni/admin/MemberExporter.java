@@ -0,0 +1,282 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.model.Member;
+import com.ziqni.admin.sdk.model.QueryRequest;
+import com.ziqni.admin.sdk.model.RangeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports every member into one binary file per partition of the id keyspace. Partitions are fetched in parallel,
+ * each through its own cursor paged {@link MemberQueryStream}.
+ * <p>
+ * A file is a sequence of length prefixed records: int record length, then id, memberRefId and name as length
+ * prefixed UTF-8 strings (length -1 for null), then an int tag count and the tags. Records are encoded into a
+ * direct buffer and written through a FileChannel.
+ * <p>
+ * After every flush the file is forced and the partition's last id, file length and count are checkpointed. An
+ * interrupted export started again over the same directory truncates each file to its checkpoint and resumes
+ * after the last exported id; finished partitions are skipped.
+ */
+public class MemberExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemberExporter.class);
+
+    private static final String CHECKPOINT_FILE = "export.checkpoint";
+    private static final String CURSOR_FIELD = "id";
+
+    /**
+     * Id characters in sort order, used to split the keyspace.
+     */
+    public static final String ID_ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    public record Report(long members, long bytes, Duration elapsed) {
+        public double membersPerSecond() {
+            final var seconds = elapsed.toNanos() / 1e9;
+            return seconds == 0 ? 0 : members / seconds;
+        }
+    }
+
+    private final MemberQueryStream members;
+    private final Path directory;
+    private final int parallelism;
+    private final int bufferSize;
+    private final Properties checkpoint = new Properties();
+
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    public MemberExporter(MemberQueryStream members, Path directory, int parallelism, int bufferSize) throws IOException {
+        this.members = members;
+        this.directory = directory;
+        this.parallelism = parallelism;
+        this.bufferSize = bufferSize;
+        Files.createDirectories(directory);
+        final var file = directory.resolve(CHECKPOINT_FILE);
+        if(Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                checkpoint.load(reader);
+            }
+        }
+    }
+
+    /**
+     * Splits the id keyspace into partitions starting at evenly spaced characters of the alphabet.
+     *
+     * @return lower bounds of every partition but the first, which is unbounded below
+     */
+    public static List<String> boundaries(String alphabet, int partitions) {
+        final var boundaries = new ArrayList<String>();
+        for (int i = 1; i < partitions; i++)
+            boundaries.add(String.valueOf(alphabet.charAt(i * alphabet.length() / partitions)));
+        return boundaries;
+    }
+
+    /**
+     * @param boundaries sorted lower bounds, n boundaries make n + 1 partitions. Must be the same when resuming.
+     */
+    public CompletableFuture<Report> export(List<String> boundaries) {
+        final var startNanos = System.nanoTime();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final var thread = new Thread(runnable, "member-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final var progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "member-export-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        progress.scheduleAtFixedRate(() -> {
+            final var seconds = (System.nanoTime() - startNanos) / 1e9;
+            logger.info("Exported {} members, {} members/s", exported.sum(), Math.round(exported.sum() / seconds));
+        }, 10, 10, TimeUnit.SECONDS);
+
+        final var partitions = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i <= boundaries.size(); i++) {
+            final var partition = i;
+            final var lower = i == 0 ? null : boundaries.get(i - 1);
+            final var upper = i == boundaries.size() ? null : boundaries.get(i);
+            partitions.add(CompletableFuture.runAsync(() -> exportPartition(partition, lower, upper), executor));
+        }
+
+        return CompletableFuture.allOf(partitions.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, throwable) -> {
+                    executor.shutdown();
+                    progress.shutdownNow();
+                })
+                .thenApply(ignored -> {
+                    final var report = new Report(exported.sum(), written.sum(), Duration.ofNanos(System.nanoTime() - startNanos));
+                    logger.info("Exported {} members, {} bytes in {}ms, {} members/s",
+                            report.members(), report.bytes(), report.elapsed().toMillis(), Math.round(report.membersPerSecond()));
+                    return report;
+                });
+    }
+
+    /**
+     * @return members exported so far by the running export, for progress reporting
+     */
+    public long exported() {
+        return exported.sum();
+    }
+
+    private void exportPartition(int partition, String lower, String upper) {
+        if(Boolean.parseBoolean(property(partition, "done")))
+            return;
+
+        final var resumeAfter = property(partition, "cursor");
+        final var position = Long.parseLong(property(partition, "position", "0"));
+        final var count = Long.parseLong(property(partition, "count", "0"));
+        final var file = directory.resolve(String.format("members-%03d.bin", partition));
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Anything past the checkpoint was written but never recorded, it is fetched again
+            channel.truncate(position);
+            channel.position(position);
+
+            final var writer = new PartitionWriter(partition, channel, count);
+            try (var stream = members.stream(() -> partitionQuery(lower, upper, resumeAfter), CURSOR_FIELD, Member::getId)) {
+                stream.forEach(writer::write);
+            }
+            writer.flush(true);
+            logger.info("Partition {} exported {} members", partition, writer.count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static QueryRequest partitionQuery(String lower, String upper, String resumeAfter) {
+        final var request = new QueryRequest();
+        if(resumeAfter != null)
+            request.addRangeItem(new RangeQuery().queryField(CURSOR_FIELD).gt(resumeAfter));
+        else if(lower != null)
+            request.addRangeItem(new RangeQuery().queryField(CURSOR_FIELD).gte(lower));
+        if(upper != null)
+            request.addRangeItem(new RangeQuery().queryField(CURSOR_FIELD).lt(upper));
+        return request;
+    }
+
+    private String property(int partition, String name) {
+        return property(partition, name, null);
+    }
+
+    private String property(int partition, String name, String defaultValue) {
+        synchronized (checkpoint) {
+            return checkpoint.getProperty(partition + "." + name, defaultValue);
+        }
+    }
+
+    private void writeCheckpoint(int partition, String cursor, long position, long count, boolean done) throws IOException {
+        synchronized (checkpoint) {
+            if(cursor != null)
+                checkpoint.setProperty(partition + ".cursor", cursor);
+            checkpoint.setProperty(partition + ".position", Long.toString(position));
+            checkpoint.setProperty(partition + ".count", Long.toString(count));
+            checkpoint.setProperty(partition + ".done", Boolean.toString(done));
+
+            final var temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                checkpoint.store(writer, null);
+            }
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private final class PartitionWriter {
+        private final int partition;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        private long count;
+        private String lastId;
+
+        private PartitionWriter(int partition, FileChannel channel, long count) {
+            this.partition = partition;
+            this.channel = channel;
+            this.count = count;
+        }
+
+        private void write(Member member) {
+            final var id = bytes(member.getId());
+            final var memberRefId = bytes(member.getMemberRefId());
+            final var name = bytes(member.getName());
+            final var tags = member.getTags() == null ? List.<String>of() : member.getTags();
+
+            var length = fieldLength(id) + fieldLength(memberRefId) + fieldLength(name) + Integer.BYTES;
+            final var tagBytes = new byte[tags.size()][];
+            for (int i = 0; i < tagBytes.length; i++) {
+                tagBytes[i] = bytes(tags.get(i));
+                length += fieldLength(tagBytes[i]);
+            }
+
+            try {
+                if(buffer.remaining() < Integer.BYTES + length)
+                    flush(false);
+                if(buffer.remaining() < Integer.BYTES + length)
+                    throw new IllegalStateException("Member [" + member.getId() + "] does not fit the export buffer");
+
+                buffer.putInt(length);
+                putField(id);
+                putField(memberRefId);
+                putField(name);
+                buffer.putInt(tagBytes.length);
+                for (byte[] tag : tagBytes)
+                    putField(tag);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            count++;
+            lastId = member.getId();
+            exported.increment();
+        }
+
+        private void flush(boolean done) throws IOException {
+            buffer.flip();
+            written.add(buffer.remaining());
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+            channel.force(false);
+            writeCheckpoint(partition, lastId, channel.position(), count, done);
+        }
+
+        private void putField(byte[] value) {
+            if(value == null) {
+                buffer.putInt(-1);
+                return;
+            }
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+
+        private int fieldLength(byte[] value) {
+            return Integer.BYTES + (value == null ? 0 : value.length);
+        }
+
+        private byte[] bytes(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.ZiqniAdminApiFactory;
+import com.ziqni.admin.sdk.model.Member;
+import com.ziqni.admin.sdk.model.MemberResponse;
+import com.ziqni.admin.sdk.model.QueryRequest;
+import com.ziqni.admin.sdk.model.QuerySortBy;
+import com.ziqni.admin.sdk.model.RangeQuery;
+import com.ziqni.admin.sdk.model.SortOrder;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks every member matching a query as a lazy stream. Each page is requested as soon as the one before it arrives,
+ * whatever the consumer is doing, up to two pages ahead of the page being consumed.
+ * <p>
+ * With a cursor field the query is sorted on that field and each page asks for values after the last one seen,
+ * so the cost of a page does not grow with its depth the way a large skip does. The field must be unique and
+ * sortable, the member id for example. Relevance ordering on _score cannot be resumed that way and pages by skip.
+ * <p>
+ * Close the stream to stop early, prefetched pages are then discarded.
+ */
+public class MemberQueryStream {
+
+    private static final int MAX_PAGES_AHEAD = 2;
+
+    private final Function<QueryRequest, CompletableFuture<MemberResponse>> query;
+    private final int pageSize;
+
+    public MemberQueryStream(Function<QueryRequest, CompletableFuture<MemberResponse>> query, int pageSize) {
+        this.query = query;
+        this.pageSize = pageSize;
+    }
+
+    public static MemberQueryStream forAdminApi(ZiqniAdminApiFactory ziqniAdminApiFactory, int pageSize) {
+        return new MemberQueryStream(request -> ziqniAdminApiFactory.getMembersApi().getMembersByQuery(request), pageSize);
+    }
+
+    /**
+     * Pages by skip, in the template's own order.
+     *
+     * @param template creates a fresh request per page, skip and limit are set by the stream
+     */
+    public Stream<Member> stream(Supplier<QueryRequest> template) {
+        return stream(new Pager(template, null, null));
+    }
+
+    /**
+     * Pages by cursor on a unique sortable field.
+     *
+     * @param template    creates a fresh request per page without a sort, sort, range and limit are set by the stream
+     * @param cursorField the field sorted and ranged on
+     * @param cursorValue reads that field from a member
+     */
+    public Stream<Member> stream(Supplier<QueryRequest> template, String cursorField, Function<Member, String> cursorValue) {
+        return stream(new Pager(template, cursorField, cursorValue));
+    }
+
+    private Stream<Member> stream(Pager pager) {
+        final var pages = new PageSpliterator(pager);
+        return StreamSupport.stream(pages, false).onClose(pages::cancel);
+    }
+
+    private record Pager(Supplier<QueryRequest> template, String cursorField, Function<Member, String> cursorValue) {}
+
+    private final class PageSpliterator extends Spliterators.AbstractSpliterator<Member> {
+        private final Pager pager;
+        private Iterator<Member> current = List.<Member>of().iterator();
+        // Pages requested and not yet taken by the consumer, guarded by this
+        private final ArrayDeque<CompletableFuture<List<Member>>> ahead = new ArrayDeque<>();
+        private CompletableFuture<List<Member>> last;
+        private boolean cancelled = false;
+        private int skip = 0;
+
+        private PageSpliterator(Pager pager) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.pager = pager;
+            synchronized (this) {
+                request(null);
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Member> action) {
+            while (!current.hasNext()) {
+                final CompletableFuture<List<Member>> page;
+                synchronized (this) {
+                    // The last page may have arrived without its callback having run yet
+                    requestAfter(last);
+                    page = ahead.poll();
+                    // Taking a page makes room for one more ahead
+                    requestAfter(last);
+                }
+                if(page == null)
+                    return false;
+
+                current = await(page).iterator();
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            ahead.forEach(page -> page.cancel(false));
+            ahead.clear();
+        }
+
+        private void request(Member after) {
+            final var page = fetch(after);
+            last = page;
+            ahead.add(page);
+            page.whenComplete((members, throwable) -> {
+                synchronized (this) {
+                    requestAfter(page);
+                }
+            });
+        }
+
+        /**
+         * Requests the page after this one if it is the newest page, arrived full and the consumer is not already
+         * too far behind. Whichever of its callback or the consumer gets here first sends it.
+         */
+        private void requestAfter(CompletableFuture<List<Member>> page) {
+            if(cancelled || page != last || !page.isDone() || page.isCompletedExceptionally() || ahead.size() >= MAX_PAGES_AHEAD)
+                return;
+
+            final var members = page.join();
+            if(members.size() == pageSize)
+                request(members.get(members.size() - 1));
+        }
+
+        private CompletableFuture<List<Member>> fetch(Member last) {
+            final var request = pager.template().get().limit(pageSize);
+            if(pager.cursorField() == null) {
+                request.skip(skip);
+                skip += pageSize;
+            } else {
+                request.skip(0).addSortByItem(new QuerySortBy().queryField(pager.cursorField()).order(SortOrder.ASC));
+                if(last != null)
+                    request.addRangeItem(new RangeQuery().queryField(pager.cursorField()).gt(pager.cursorValue().apply(last)));
+            }
+
+            return query.apply(request).thenApply(response -> {
+                if(response.getErrors() != null && !response.getErrors().isEmpty())
+                    throw new IllegalStateException("Error getting members: " + response.getErrors());
+                return response.getResults() == null ? List.of() : response.getResults();
+            });
+        }
+
+        private List<Member> await(CompletableFuture<List<Member>> page) {
+            try {
+                return page.join();
+            } catch (CompletionException e) {
+                if(e.getCause() instanceof RuntimeException cause)
+                    throw cause;
+                throw e;
+            }
+        }
+    }
+}
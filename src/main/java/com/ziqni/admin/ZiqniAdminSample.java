@@ -1,21 +1,39 @@
 package com.ziqni.admin;
 
+import com.google.common.eventbus.Subscribe;
 import com.ziqni.admin.sdk.ZiqniAdminApiFactory;
 import com.ziqni.admin.sdk.configuration.AdminApiClientConfigBuilder;
+import com.ziqni.admin.sdk.context.WSClientConnected;
 import com.ziqni.admin.sdk.model.*;
+import com.ziqni.metrics.Counter;
+import com.ziqni.metrics.Metrics;
 import com.ziqni.util.GlobalExceptionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ZiqniAdminSample {
 
     private static final Logger logger = LoggerFactory.getLogger(ZiqniAdminSample.class);
 
+    private EventPublisher eventPublisher;
+    private EventValidator eventValidator;
+
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "event-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter reconnects = Metrics.registry().counter("ziqni_ws_reconnects_total", "Streaming client reconnections", "client", "admin");
+
     public ZiqniAdminSample(String apiKey, String spaceName) throws Exception {
 
         logger.info("Running Admin Sample...");
@@ -30,40 +48,53 @@ public class ZiqniAdminSample {
 
         logger.info("Launched compute engine app for project [{}] and user [{}]", configuration.getAdminClientIdentityProjectUrl(), configuration.getAdminClientIdentityUser());
         Thread.setDefaultUncaughtExceptionHandler(new GlobalExceptionHandler());
-        ziqniAdminApiFactory.initialise();
-
-        if(configuration.isWebsocket()) {
-            while (ziqniAdminApiFactory.getStreamingClient() == null) {
-                Thread.sleep(500);
-                logger.info("+++ Initializing the streaming admin api client");
-            }
 
-            final AtomicInteger counter = new AtomicInteger(0);
-            final var started = ziqniAdminApiFactory.getStreamingClient().start();
-            while (!ziqniAdminApiFactory.getStreamingClient().isConnected()) {
-                Thread.sleep(500);
-                logger.info("+++ Waiting for the streaming client to start [{}]",counter.incrementAndGet());
-            }
-            logger.info("+++ Started the streaming client");
-        }
-        else
+        if(!configuration.isWebsocket())
             throw new RuntimeException("+++ Only socket based communications is used for this platform as REST is to in-efficient for intensive data processing");
 
+        // Completes on the WSClientConnected signal rather than polling for the client and its connection
+        AdminStreamingReadiness.connect(ziqniAdminApiFactory, Duration.ofSeconds(30)).join();
+        logger.info("+++ Started the streaming client");
+
+        this.eventValidator = EventValidator.forAdminApi(ziqniAdminApiFactory, Duration.ofMinutes(5));
+
+        // Events are written ahead to the spool, anything not acknowledged before a disconnect or restart is replayed
+        this.eventPublisher = EventPublisher.builder(ziqniAdminApiFactory)
+                .spool(new EventSpool(Path.of("spool", spaceName), 64 * 1024 * 1024, Duration.ofMillis(10)))
+                .deduplicator(new EventDeduplicator(1_000_000, 0.001, Duration.ofHours(1), 100_000, false)) // Repeated eventRefIds are dropped locally
+                .validator(eventValidator) // Events the platform would reject never leave the client
+                .build();
+        ziqniAdminApiFactory.getZiqniAdminEventBus().register(this);
+
         logger.info("+++ Admin API connected");
 
-        final var members = getSomeMembers(ziqniAdminApiFactory);
+        eventValidator.refresh().join();
+        eventPublisher.replayUnacknowledged();
 
+        final var members = getSomeMembers(ziqniAdminApiFactory);
 
         final var eventsCreated = members.thenAccept( memberList -> {
             if(!memberList.isEmpty()){
                 memberList.forEach(member ->
-                        registerMemberEvent(ziqniAdminApiFactory, member)
+                        registerMemberEvent(eventPublisher, member)
                 );
             }
         });
 
     }
 
+    @Subscribe
+    public void onWSClientConnected(WSClientConnected change) {
+        if(change.getConnectedHeaders() == null)
+            return;
+        logger.info("WSClientConnected {}", change);
+        // Registered only once the first connection was up, so every connection seen here is a reconnect
+        reconnects.increment();
+        // Called on the websocket thread, so nothing here may wait on a response that thread has to deliver. The
+        // replay blocks for byte budget that only acks on that thread free, so it runs on its own thread
+        eventValidator.refresh().whenCompleteAsync((ignored, throwable) -> eventPublisher.replayUnacknowledged(), replayExecutor);
+    }
+
     public CompletableFuture<List<Member>> getSomeMembers(ZiqniAdminApiFactory ziqniAdminApiFactory){
 
         logger.info("+++ Getting members...");
@@ -100,7 +131,7 @@ public class ZiqniAdminSample {
         });
     }
 
-    public CompletableFuture<ModelApiResponse> registerMemberEvent(ZiqniAdminApiFactory ziqniAdminApiFactory, Member member){
+    public CompletableFuture<String> registerMemberEvent(EventPublisher eventPublisher, Member member){
 
         logger.info("+++ Registering event for member: "+member.getName());
 
@@ -112,28 +143,20 @@ public class ZiqniAdminSample {
                 .sourceValue(5.0) // how many
                 .transactionTimestamp(OffsetDateTime.now()) // when
                 .putCustomFieldsItem("condition", "fresh") // additional data
-                .eventRefId("1234") // Your unique id for this event
+                .eventRefId(UUID.randomUUID().toString()) // Your unique id for this event, a repeated id is dropped as a duplicate
                 .unitOfMeasure("other")// can be currency, calories, etc
                 ;
 
-        return ziqniAdminApiFactory.getEventsApi().createEvents(List.of(createEventRequest))
-                .handle((response, throwable) -> {
+        // Events are batched by the publisher, so many members share a single createEvents round trip
+        return eventPublisher.publish(createEventRequest)
+                .whenComplete((eventId, throwable) -> {
 
                     if(throwable != null){
                         logger.error("+++ Error registering event: "+throwable.getMessage());
-                        throw new RuntimeException("+++ Error registering event: "+throwable.getMessage());
-                    }
-
-                    if(response.getMeta().getErrorCount() > 0){
-                        logger.error("+++ Error registering event: "+response.getErrors());
-                        throw new RuntimeException("+++ Error registering event: "+response.getErrors());
-                    }
-
-                    if(response.getMeta().getResultCount() > 0){
-                        logger.info("+++ Event registered: "+response.getResults().get(0).getId());
+                        return;
                     }
 
-                    return response;
+                    logger.info("+++ Event registered: "+eventId);
                 })
                 ;
 
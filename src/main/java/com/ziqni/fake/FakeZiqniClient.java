@@ -0,0 +1,137 @@
+package com.ziqni.fake;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A minimal STOMP request/response client for {@link FakeZiqniServer}, so load can be driven against it without the
+ * SDKs' transport. Each request is a SEND with a correlation-id header, answered by the MESSAGE carrying it back.
+ */
+public class FakeZiqniClient implements AutoCloseable {
+
+    private static final String CORRELATION_ID = "correlation-id";
+
+    private final String responseDestination;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final CompletableFuture<FakeZiqniClient> connected = new CompletableFuture<>();
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    private volatile WebSocket socket;
+
+    private FakeZiqniClient(String responseDestination) {
+        this.responseDestination = responseDestination;
+    }
+
+    /**
+     * Opens the websocket, sends CONNECT and subscribes to the response destination.
+     *
+     * @return completes once the server answered CONNECTED
+     */
+    public static CompletableFuture<FakeZiqniClient> connect(HttpClient httpClient, URI webSocketUri, String responseDestination, Duration timeout) {
+        final var client = new FakeZiqniClient(responseDestination);
+        return httpClient.newWebSocketBuilder()
+                .connectTimeout(timeout)
+                .buildAsync(webSocketUri, client.new Listener())
+                .thenCompose(socket -> {
+                    client.socket = socket;
+                    return socket.sendText(StompFrame.of("CONNECT", Map.of("accept-version", "1.2", "host", webSocketUri.getHost()), null).serialize(), true);
+                })
+                .thenCompose(socket -> client.connected)
+                .thenCompose(ignored -> client.socket.sendText(
+                        StompFrame.of("SUBSCRIBE", Map.of("id", "responses", "destination", responseDestination), null).serialize(), true))
+                .thenApply(ignored -> client)
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the body of the reply to a SEND on the destination
+     */
+    public CompletableFuture<String> request(String destination, String body) {
+        final var correlationId = Long.toString(correlationIds.incrementAndGet());
+        final var reply = new CompletableFuture<String>();
+        pending.put(correlationId, reply);
+
+        final var headers = new LinkedHashMap<String, String>();
+        headers.put("destination", destination);
+        headers.put("reply-to", responseDestination);
+        headers.put(CORRELATION_ID, correlationId);
+        headers.put("content-type", "application/json");
+
+        // The JDK websocket allows one outstanding send at a time, a lock rather than synchronized keeps virtual threads unpinned
+        sendLock.lock();
+        try {
+            socket.sendText(StompFrame.of("SEND", headers, body).serialize(), true).join();
+        } catch (RuntimeException e) {
+            reply.completeExceptionally(e);
+        } finally {
+            sendLock.unlock();
+        }
+        return reply.whenComplete((result, throwable) -> pending.remove(correlationId));
+    }
+
+    public int pendingRequests() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        final var failure = new IllegalStateException("Fake Ziqni client closed");
+        pending.values().forEach(reply -> reply.completeExceptionally(failure));
+        if(socket != null)
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(throwable -> null);
+    }
+
+    private void onFrame(StompFrame frame) {
+        switch (frame.command()) {
+            case "CONNECTED" -> connected.complete(this);
+            case "MESSAGE" -> {
+                final var correlationId = frame.header(CORRELATION_ID);
+                final var reply = correlationId == null ? null : pending.get(correlationId);
+                if(reply != null)
+                    reply.complete(frame.body());
+            }
+            case "ERROR" -> connected.completeExceptionally(new IllegalStateException(frame.body()));
+            default -> { }
+        }
+    }
+
+    private final class Listener implements WebSocket.Listener {
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if(last) {
+                StompFrame.parse(text.toString()).forEach(FakeZiqniClient.this::onFrame);
+                text.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            connected.completeExceptionally(error);
+            pending.values().forEach(reply -> reply.completeExceptionally(error));
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            final var failure = new IllegalStateException("Fake Ziqni server closed the socket: " + statusCode + " " + reason);
+            connected.completeExceptionally(failure);
+            pending.values().forEach(reply -> reply.completeExceptionally(failure));
+            return null;
+        }
+    }
+}
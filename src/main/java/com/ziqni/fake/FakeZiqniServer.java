@@ -0,0 +1,651 @@
+package com.ziqni.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.ziqni.admin.EventValidator.Violation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A local stand-in for the Ziqni platform, for load tests that must not leave the machine.
+ * <p>
+ * Serves POST /member-token over HTTP and STOMP 1.2 over a plain websocket. SEND frames are routed by the last
+ * segment of their destination: createEvents, getMembersByQuery and subscribeToLeaderboard are implemented,
+ * anything else gets an empty result. A reply goes to the destination in the request's reply-to header, or to
+ * /user/queue/rpc-results, and carries the request's custom headers so clients can correlate it. Each session gets
+ * leaderboard updates for the contests it subscribed to, and every session gets entityChanged callbacks. They are
+ * pushed periodically to /user/queue/callbacks, with a callback header naming them, and to any subscription whose
+ * destination mentions them.
+ * <p>
+ * createEvents applies the platform's 3214, 3018 and 3226 checks for real; on top of that any request fails
+ * with one of the configured errors at the configured rate. Errors take the platform's shape, a 400
+ * error.bad_request whose detail carries the specific code and message, with the rejected event's eventRefId as
+ * modelId. A failed /member-token answers 400 with the same error in its errors. Every reply is delayed by a random
+ * latency.
+ * <p>
+ * Scope: the two queues are the ones the SDKs subscribe to on connect, as their logs show. The SEND destinations
+ * and the header the SDKs correlate replies by are not part of their public API and were not verified against
+ * them, so this serves {@link FakeZiqniClient} and load tests built on it; pointing the SDK factories at
+ * {@link #webSocketUri()} may need the routing here adjusted.
+ */
+public class FakeZiqniServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FakeZiqniServer.class);
+
+    // Not copied onto replies, everything else is treated as a correlation header
+    private static final Set<String> REQUEST_ONLY_HEADERS = Set.of("destination", "content-length", "content-type", "receipt", "reply-to");
+
+    private final Builder config;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler;
+    private final HttpServer httpServer;
+    private final ServerSocket webSocketServer;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder pushed = new LongAdder();
+
+    private volatile boolean running = true;
+
+    private FakeZiqniServer(Builder config) throws IOException {
+        this.config = config;
+        this.scheduler = Executors.newScheduledThreadPool(config.schedulerThreads, runnable -> {
+            final var thread = new Thread(runnable, "fake-ziqni-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.httpPort), 0);
+        this.httpServer.createContext("/member-token", this::handleMemberToken);
+        this.httpServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.httpServer.start();
+
+        this.webSocketServer = new ServerSocket(config.webSocketPort, 0, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().name("fake-ziqni-accept").start(this::acceptLoop);
+
+        final var leaderboardMillis = config.leaderboardInterval.toMillis();
+        if(leaderboardMillis > 0)
+            scheduler.scheduleAtFixedRate(this::pushLeaderboards, leaderboardMillis, leaderboardMillis, TimeUnit.MILLISECONDS);
+        final var entityChangedMillis = config.entityChangedInterval.toMillis();
+        if(entityChangedMillis > 0)
+            scheduler.scheduleAtFixedRate(this::pushEntityChanged, entityChangedMillis, entityChangedMillis, TimeUnit.MILLISECONDS);
+
+        logger.info("Fake Ziqni server on {} and {}", tokenUri(), webSocketUri());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public URI tokenUri() {
+        return URI.create("http://localhost:" + httpServer.getAddress().getPort() + "/member-token");
+    }
+
+    public URI webSocketUri() {
+        return URI.create("ws://localhost:" + webSocketServer.getLocalPort() + "/ws");
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    public long pushed() {
+        return pushed.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        httpServer.stop(0);
+        try {
+            webSocketServer.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        sessions.forEach(session -> session.connection.close());
+        scheduler.shutdownNow();
+    }
+
+    //////// HTTP ////////
+
+    private void handleMemberToken(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            final var request = mapper.readTree(exchange.getRequestBody());
+            sleep(latency());
+
+            final var member = request.path("member").asText("member");
+            final var response = mapper.createObjectNode();
+            final var errors = response.putArray("errors");
+            if(shouldInjectError()) {
+                errors.add(error(randomError(), member));
+            } else {
+                final var expires = request.path("expires").asLong(3600);
+                response.putObject("data").put("jwtToken", jwt(member, expires));
+            }
+
+            final var body = mapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(errors.isEmpty() ? 200 : 400, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static String jwt(String member, long expiresInSeconds) {
+        final var encoder = Base64.getUrlEncoder().withoutPadding();
+        final var header = encoder.encodeToString("{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        final var exp = System.currentTimeMillis() / 1000 + expiresInSeconds;
+        final var payload = encoder.encodeToString(("{\"sub\":\"" + member + "\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".fake";
+    }
+
+    //////// STOMP ////////
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                final Socket socket = webSocketServer.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().name("fake-ziqni-session").start(() -> serve(socket));
+            } catch (IOException e) {
+                if(running)
+                    logger.warn("Fake Ziqni server failed to accept", e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Session session = null;
+        try {
+            final var connection = WebSocketConnection.accept(socket);
+            if(connection == null)
+                return;
+            session = new Session(connection);
+            sessions.add(session);
+
+            String message;
+            while ((message = connection.readText()) != null) {
+                for (StompFrame frame : StompFrame.parse(message))
+                    onFrame(session, frame);
+            }
+        } catch (IOException e) {
+            if(running)
+                logger.debug("Fake Ziqni session ended", e);
+        } finally {
+            if(session != null) {
+                sessions.remove(session);
+                session.connection.close();
+            }
+        }
+    }
+
+    private void onFrame(Session session, StompFrame frame) throws IOException {
+        switch (frame.command()) {
+            case "CONNECT", "STOMP" -> session.send(StompFrame.of("CONNECTED", Map.of("version", "1.2", "heart-beat", "0,0", "user-name", session.userName), null));
+            case "SUBSCRIBE" -> session.subscriptions.put(frame.header("id"), frame.header("destination"));
+            case "UNSUBSCRIBE" -> session.subscriptions.remove(frame.header("id"));
+            case "SEND" -> onSend(session, frame);
+            case "DISCONNECT" -> {
+                receipt(session, frame);
+                session.connection.close();
+            }
+            default -> logger.debug("Ignoring STOMP {}", frame.command());
+        }
+        if(!"DISCONNECT".equals(frame.command()))
+            receipt(session, frame);
+    }
+
+    private void receipt(Session session, StompFrame frame) throws IOException {
+        final var receipt = frame.header("receipt");
+        if(receipt != null)
+            session.send(StompFrame.of("RECEIPT", Map.of("receipt-id", receipt), null));
+    }
+
+    private void onSend(Session session, StompFrame frame) {
+        requests.increment();
+        final var destination = frame.header("destination") == null ? "" : frame.header("destination");
+        final var action = destination.substring(destination.lastIndexOf('/') + 1);
+
+        final ObjectNode response;
+        try {
+            final var body = frame.body().isBlank() ? mapper.createObjectNode() : mapper.readTree(frame.body());
+            if(shouldInjectError()) {
+                response = errorResponse(randomError(), body);
+            } else {
+                response = switch (action) {
+                    case "createEvents" -> createEvents(body);
+                    case "getMembersByQuery" -> getMembersByQuery(body);
+                    case "subscribeToLeaderboard" -> subscribeToLeaderboard(session, body);
+                    default -> emptyResponse();
+                };
+            }
+        } catch (IOException e) {
+            logger.warn("Fake Ziqni server could not read {} request", action, e);
+            return;
+        }
+
+        final var replyTo = frame.header("reply-to") != null ? frame.header("reply-to") : config.responseDestination;
+        final var correlation = new LinkedHashMap<String, String>();
+        frame.headers().forEach((name, value) -> {
+            if(!REQUEST_ONLY_HEADERS.contains(name))
+                correlation.put(name, value);
+        });
+
+        scheduler.schedule(() -> session.publish(replyTo, correlation, response), latency().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private ObjectNode createEvents(JsonNode events) {
+        final var response = emptyResponse();
+        final var results = (ArrayNode) response.get("results");
+        final var errors = (ArrayNode) response.get("errors");
+
+        final Iterable<JsonNode> batch = events.isArray() ? events : List.of(events);
+        for (JsonNode event : batch) {
+            final var violation = violation(event);
+            if(violation != null) {
+                errors.add(error(violation, event.path("eventRefId").asText(null)));
+                continue;
+            }
+            results.addObject()
+                    .put("id", UUID.randomUUID().toString())
+                    .put("externalReference", event.path("eventRefId").asText(null));
+        }
+        meta(response, results.size(), errors.size());
+        return response;
+    }
+
+    private Violation violation(JsonNode event) {
+        if(event.path("memberRefId").asText("").isBlank() && event.path("memberId").asText("").isBlank())
+            return Violation.MEMBER_NOT_SET;
+        if(event.path("sourceValue").isMissingNode() || event.path("sourceValue").isNull())
+            return Violation.POINTS_NOT_SET;
+        final var unit = event.path("unitOfMeasure");
+        if(!unit.isMissingNode() && !unit.isNull() && !config.unitsOfMeasure.contains(unit.asText()))
+            return Violation.UNKNOWN_UNIT_OF_MEASURE;
+        return null;
+    }
+
+    private ObjectNode getMembersByQuery(JsonNode query) {
+        final var skip = query.path("skip").asInt(0);
+        final var limit = query.path("limit").asInt(20);
+
+        // Synthetic members are member-00000000 upwards, so id ranges map onto index ranges
+        long from = 0;
+        long to = config.members;
+        for (JsonNode range : query.path("range")) {
+            if(!"id".equals(range.path("queryField").asText()))
+                continue;
+            if(range.hasNonNull("gt"))
+                from = Math.max(from, ceilIndex(range.get("gt").asText(), true));
+            if(range.hasNonNull("gte"))
+                from = Math.max(from, ceilIndex(range.get("gte").asText(), false));
+            if(range.hasNonNull("lt"))
+                to = Math.min(to, ceilIndex(range.get("lt").asText(), false));
+        }
+
+        final var response = emptyResponse();
+        final var results = (ArrayNode) response.get("results");
+        for (long i = from + skip; i < to && results.size() < limit; i++) {
+            results.addObject()
+                    .put("id", memberId(i))
+                    .put("memberRefId", "ref-" + i)
+                    .put("name", "Member " + i);
+        }
+        meta(response, results.size(), 0).put("totalRecordsFound", Math.max(0, to - from));
+        return response;
+    }
+
+    private long ceilIndex(String id, boolean exclusive) {
+        // First synthetic index whose id sorts after (or at) the given one
+        long low = 0, high = config.members;
+        while (low < high) {
+            final var mid = (low + high) >>> 1;
+            final var compare = memberId(mid).compareTo(id);
+            if(compare < 0 || (exclusive && compare == 0))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private static String memberId(long index) {
+        return String.format("member-%08d", index);
+    }
+
+    private ObjectNode subscribeToLeaderboard(Session session, JsonNode request) {
+        final var contestId = request.path("entityId").asText(null);
+        if(contestId != null)
+            session.leaderboard(contestId, !"UNSUBSCRIBE".equalsIgnoreCase(request.path("action").asText()));
+        final var response = emptyResponse();
+        response.putObject("data")
+                .put("entityId", contestId)
+                .put("action", request.path("action").asText("SUBSCRIBE"));
+        meta(response, 1, 0);
+        return response;
+    }
+
+    private void pushLeaderboards() {
+        // Sessions on the same contest see the same standings for a tick
+        final var standings = new HashMap<String, ObjectNode>();
+        for (Session session : sessions)
+            session.pushLeaderboards(contestId -> standings.computeIfAbsent(contestId, this::leaderboard));
+    }
+
+    private ObjectNode leaderboard(String contestId) {
+        final var random = ThreadLocalRandom.current();
+        final var leaderboard = mapper.createObjectNode().put("id", contestId);
+        final var entries = leaderboard.putArray("leaderboardEntries");
+        final var members = distinctMembers(config.leaderboardSize, random);
+        for (int rank = 1; rank <= members.length; rank++) {
+            final var index = members[rank - 1];
+            final var entry = entries.addObject()
+                    .put("rank", rank)
+                    .put("score", (members.length - rank + 1) * 10.0 + random.nextInt(10));
+            entry.putArray("members").addObject()
+                    .put("memberId", memberId(index))
+                    .put("memberRefId", "ref-" + index)
+                    .put("name", "Member " + index);
+        }
+        return leaderboard;
+    }
+
+    /**
+     * Picks count different synthetic members out of the first 2 * count, a member ranks once per leaderboard.
+     */
+    private long[] distinctMembers(int count, ThreadLocalRandom random) {
+        final var pool = (int) Math.min(config.members, 2L * count);
+        final var indexes = new long[pool];
+        for (int i = 0; i < pool; i++)
+            indexes[i] = i;
+        final var picked = Math.min(count, pool);
+        for (int i = 0; i < picked; i++) {
+            final var j = random.nextInt(i, pool);
+            final var swap = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = swap;
+        }
+        return Arrays.copyOf(indexes, picked);
+    }
+
+    private void pushEntityChanged() {
+        final var change = mapper.createObjectNode()
+                .put("entityId", UUID.randomUUID().toString())
+                .put("entityType", "Competition")
+                .put("action", "Update");
+        for (Session session : sessions)
+            session.callback("entityChanged", change);
+    }
+
+    //////// Responses ////////
+
+    private ObjectNode emptyResponse() {
+        final var response = mapper.createObjectNode();
+        response.putArray("results");
+        response.putArray("errors");
+        return response;
+    }
+
+    /**
+     * Fails the whole request, with one error per event for a createEvents batch.
+     */
+    private ObjectNode errorResponse(Violation violation, JsonNode request) {
+        final var response = emptyResponse();
+        final var errors = (ArrayNode) response.get("errors");
+        final Iterable<JsonNode> models = request.isArray() ? request : List.of(request);
+        for (JsonNode model : models)
+            errors.add(error(violation, model.path("eventRefId").asText(null)));
+        meta(response, 0, errors.size());
+        return response;
+    }
+
+    private ObjectNode meta(ObjectNode response, int results, int errors) {
+        return response.putObject("meta")
+                .put("resultCount", results)
+                .put("errorCount", errors);
+    }
+
+    /**
+     * The platform answers a rejected model with a generic 400 and puts the reason in the detail.
+     */
+    private ObjectNode error(Violation violation, String modelId) {
+        final var error = mapper.createObjectNode()
+                .put("modelId", modelId)
+                .put("errorCode", 400)
+                .put("message", "error.bad_request");
+        error.putArray("detail").addObject()
+                .put("modelId", modelId)
+                .put("errorCode", violation.getErrorCode() == null ? 0 : violation.getErrorCode())
+                .put("message", violation.getMessage());
+        return error;
+    }
+
+    private boolean shouldInjectError() {
+        if(config.errorRate <= 0 || config.injectedErrors.isEmpty() || ThreadLocalRandom.current().nextDouble() >= config.errorRate)
+            return false;
+        injectedErrors.increment();
+        return true;
+    }
+
+    private Violation randomError() {
+        final var errors = new ArrayList<>(config.injectedErrors);
+        return errors.get(ThreadLocalRandom.current().nextInt(errors.size()));
+    }
+
+    private Duration latency() {
+        final var min = config.minLatency.toNanos();
+        final var max = config.maxLatency.toNanos();
+        return Duration.ofNanos(max <= min ? min : ThreadLocalRandom.current().nextLong(min, max));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Session {
+        private final WebSocketConnection connection;
+        private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+        private final String userName = UUID.randomUUID().toString();
+        // Contests this session subscribed to, guarded by this so nothing is pushed after an unsubscribe is answered
+        private final Set<String> leaderboards = new HashSet<>();
+
+        private Session(WebSocketConnection connection) {
+            this.connection = connection;
+        }
+
+        private void send(StompFrame frame) throws IOException {
+            connection.sendText(frame.serialize());
+        }
+
+        private synchronized void leaderboard(String contestId, boolean subscribe) {
+            if(subscribe)
+                leaderboards.add(contestId);
+            else
+                leaderboards.remove(contestId);
+        }
+
+        private synchronized void pushLeaderboards(Function<String, ObjectNode> standings) {
+            for (String contestId : leaderboards)
+                callback("leaderboardUpdate", standings.apply(contestId));
+        }
+
+        /**
+         * Delivers to the callback queue and to any subscription whose destination mentions the callback.
+         */
+        private void callback(String callback, ObjectNode body) {
+            final var mentioning = callback.toLowerCase(Locale.ROOT);
+            subscriptions.forEach((id, destination) -> {
+                if(destination != null && (destination.equals(config.callbackDestination) || destination.toLowerCase(Locale.ROOT).contains(mentioning)))
+                    deliver(id, destination, Map.of("callback", callback), body);
+            });
+        }
+
+        /**
+         * Delivers to every subscription on the destination.
+         */
+        private void publish(String destination, Map<String, String> headers, JsonNode body) {
+            subscriptions.forEach((id, subscribed) -> {
+                if(destination.equals(subscribed))
+                    deliver(id, destination, headers, body);
+            });
+        }
+
+        private void deliver(String subscriptionId, String destination, Map<String, String> headers, JsonNode body) {
+            try {
+                final var frameHeaders = new LinkedHashMap<>(headers);
+                frameHeaders.put("destination", destination);
+                frameHeaders.put("subscription", subscriptionId);
+                frameHeaders.put("message-id", Long.toString(messageIds.incrementAndGet()));
+                frameHeaders.put("timestamp", Long.toString(System.currentTimeMillis()));
+                frameHeaders.put("content-type", "application/json");
+                send(StompFrame.of("MESSAGE", frameHeaders, mapper.writeValueAsString(body)));
+                pushed.increment();
+            } catch (IOException e) {
+                logger.debug("Fake Ziqni server failed to deliver to {}", destination, e);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private int httpPort = 0;
+        private int webSocketPort = 0;
+        private Duration minLatency = Duration.ZERO;
+        private Duration maxLatency = Duration.ZERO;
+        private double errorRate = 0;
+        private Set<Violation> injectedErrors = EnumSet.of(Violation.MEMBER_NOT_SET, Violation.POINTS_NOT_SET, Violation.UNKNOWN_UNIT_OF_MEASURE);
+        private Set<String> unitsOfMeasure = Set.of("other");
+        private long members = 10_000;
+        private int leaderboardSize = 20;
+        private Duration leaderboardInterval = Duration.ofSeconds(1);
+        private Duration entityChangedInterval = Duration.ofSeconds(5);
+        private String responseDestination = "/user/queue/rpc-results";
+        private String callbackDestination = "/user/queue/callbacks";
+        private int schedulerThreads = 2;
+
+        private Builder() {
+        }
+
+        /** 0 picks a free port */
+        public Builder httpPort(int httpPort) {
+            this.httpPort = httpPort;
+            return this;
+        }
+
+        /** 0 picks a free port */
+        public Builder webSocketPort(int webSocketPort) {
+            this.webSocketPort = webSocketPort;
+            return this;
+        }
+
+        /** Every reply is delayed by a uniformly random latency in this range */
+        public Builder latency(Duration min, Duration max) {
+            this.minLatency = min;
+            this.maxLatency = max;
+            return this;
+        }
+
+        /** Fraction of requests failed with one of the injected errors */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Builder injectedErrors(Set<Violation> injectedErrors) {
+            this.injectedErrors = EnumSet.copyOf(injectedErrors);
+            return this;
+        }
+
+        /** Units of measure createEvents accepts, others fail with 3226 */
+        public Builder unitsOfMeasure(Set<String> unitsOfMeasure) {
+            this.unitsOfMeasure = Set.copyOf(unitsOfMeasure);
+            return this;
+        }
+
+        /** Number of synthetic members getMembersByQuery pages over */
+        public Builder members(long members) {
+            this.members = members;
+            return this;
+        }
+
+        public Builder leaderboardSize(int leaderboardSize) {
+            this.leaderboardSize = leaderboardSize;
+            return this;
+        }
+
+        /** Zero disables the pushes */
+        public Builder leaderboardInterval(Duration leaderboardInterval) {
+            this.leaderboardInterval = leaderboardInterval;
+            return this;
+        }
+
+        /** Zero disables the pushes */
+        public Builder entityChangedInterval(Duration entityChangedInterval) {
+            this.entityChangedInterval = entityChangedInterval;
+            return this;
+        }
+
+        /** Where replies go when a request has no reply-to header */
+        public Builder responseDestination(String responseDestination) {
+            this.responseDestination = responseDestination;
+            return this;
+        }
+
+        /** Where leaderboard and entityChanged callbacks are pushed */
+        public Builder callbackDestination(String callbackDestination) {
+            this.callbackDestination = callbackDestination;
+            return this;
+        }
+
+        public Builder schedulerThreads(int schedulerThreads) {
+            this.schedulerThreads = schedulerThreads;
+            return this;
+        }
+
+        public FakeZiqniServer start() throws IOException {
+            return new FakeZiqniServer(this);
+        }
+    }
+}
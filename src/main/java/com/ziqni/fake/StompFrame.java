@@ -0,0 +1,63 @@
+package com.ziqni.fake;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A STOMP 1.2 frame. Header values are not escaped, the fake server only exchanges plain ids and destinations.
+ */
+record StompFrame(String command, Map<String, String> headers, String body) {
+
+    static StompFrame of(String command, Map<String, String> headers, String body) {
+        return new StompFrame(command, new LinkedHashMap<>(headers), body == null ? "" : body);
+    }
+
+    String header(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * Splits a websocket message into its frames, skipping heart-beat newlines.
+     */
+    static List<StompFrame> parse(String message) {
+        final var frames = new ArrayList<StompFrame>();
+        int start = 0;
+        while (start < message.length()) {
+            while (start < message.length() && (message.charAt(start) == '\n' || message.charAt(start) == '\r'))
+                start++;
+            if(start >= message.length())
+                break;
+
+            var end = message.indexOf('\0', start);
+            if(end < 0)
+                end = message.length();
+            frames.add(parseFrame(message.substring(start, end)));
+            start = end + 1;
+        }
+        return frames;
+    }
+
+    String serialize() {
+        final var builder = new StringBuilder(command).append('\n');
+        headers.forEach((name, value) -> builder.append(name).append(':').append(value).append('\n'));
+        return builder.append('\n').append(body).append('\0').toString();
+    }
+
+    private static StompFrame parseFrame(String frame) {
+        final var bodyStart = frame.indexOf("\n\n");
+        final var head = bodyStart < 0 ? frame : frame.substring(0, bodyStart);
+        final var body = bodyStart < 0 ? "" : frame.substring(bodyStart + 2);
+
+        final var lines = head.split("\r?\n");
+        final var headers = new LinkedHashMap<String, String>();
+        for (int i = 1; i < lines.length; i++) {
+            final var colon = lines[i].indexOf(':');
+            // Repeated headers: the first one wins
+            if(colon > 0)
+                headers.putIfAbsent(lines[i].substring(0, colon), lines[i].substring(colon + 1));
+        }
+        return new StompFrame(lines[0].trim(), headers, body);
+    }
+}
@@ -0,0 +1,204 @@
+package com.ziqni.fake;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Server side of one RFC 6455 websocket: the upgrade handshake, unmasking client frames and writing unmasked text
+ * frames. Only what a STOMP client needs: text, continuation, ping and close. No extensions.
+ */
+final class WebSocketConnection implements AutoCloseable {
+
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+
+    private WebSocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Reads the HTTP upgrade request and answers it.
+     *
+     * @return the open connection, or null if the request was not a websocket upgrade
+     */
+    static WebSocketConnection accept(Socket socket) throws IOException {
+        final var connection = new WebSocketConnection(socket);
+        final var headers = connection.readRequestHeaders();
+        final var key = headers.get("sec-websocket-key");
+        if(key == null) {
+            connection.out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            connection.out.flush();
+            connection.close();
+            return null;
+        }
+
+        final var protocol = headers.get("sec-websocket-protocol");
+        final var response = new StringBuilder()
+                .append("HTTP/1.1 101 Switching Protocols\r\n")
+                .append("Upgrade: websocket\r\n")
+                .append("Connection: Upgrade\r\n")
+                .append("Sec-WebSocket-Accept: ").append(acceptKey(key)).append("\r\n");
+        if(protocol != null)
+            response.append("Sec-WebSocket-Protocol: ").append(protocol.split(",")[0].trim()).append("\r\n");
+        response.append("\r\n");
+
+        connection.out.write(response.toString().getBytes(StandardCharsets.US_ASCII));
+        connection.out.flush();
+        return connection;
+    }
+
+    /**
+     * @return the next complete text message, or null once the client closed
+     */
+    String readText() throws IOException {
+        final var message = new ByteArrayOutputStream();
+        while (true) {
+            final var first = in.read();
+            if(first < 0)
+                return null;
+            final var second = readByte();
+
+            final var fin = (first & 0x80) != 0;
+            final var opcode = first & 0x0F;
+            final var masked = (second & 0x80) != 0;
+            long length = second & 0x7F;
+            if(length == 126)
+                length = (readByte() << 8) | readByte();
+            else if(length == 127) {
+                length = 0;
+                for (int i = 0; i < 8; i++)
+                    length = (length << 8) | readByte();
+            }
+            if(length > Integer.MAX_VALUE)
+                throw new IOException("Frame too large");
+
+            final var mask = new byte[4];
+            if(masked)
+                readFully(mask);
+            final var payload = new byte[(int) length];
+            readFully(payload);
+            if(masked) {
+                for (int i = 0; i < payload.length; i++)
+                    payload[i] ^= mask[i & 3];
+            }
+
+            switch (opcode) {
+                case OP_CLOSE -> {
+                    writeFrame(OP_CLOSE, payload);
+                    return null;
+                }
+                case OP_PING -> writeFrame(OP_PONG, payload);
+                case OP_PONG -> { }
+                case OP_TEXT, OP_BINARY, OP_CONTINUATION -> {
+                    message.write(payload);
+                    if(fin)
+                        return message.toString(StandardCharsets.UTF_8);
+                }
+                default -> throw new IOException("Unknown opcode " + opcode);
+            }
+        }
+    }
+
+    void sendText(String text) throws IOException {
+        writeFrame(OP_TEXT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private synchronized void writeFrame(int opcode, byte[] payload) throws IOException {
+        out.write(0x80 | opcode);
+        if(payload.length < 126) {
+            out.write(payload.length);
+        } else if(payload.length <= 0xFFFF) {
+            out.write(126);
+            out.write(payload.length >>> 8);
+            out.write(payload.length);
+        } else {
+            out.write(127);
+            for (int i = 7; i >= 0; i--)
+                out.write((int) ((long) payload.length >>> (i * 8)));
+        }
+        out.write(payload);
+        out.flush();
+    }
+
+    private Map<String, String> readRequestHeaders() throws IOException {
+        final var headers = new HashMap<String, String>();
+        readLine(); // Request line
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            final var colon = line.indexOf(':');
+            if(colon > 0)
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private String readLine() throws IOException {
+        final var line = new StringBuilder();
+        int c;
+        while ((c = readByte()) != '\n') {
+            if(c != '\r')
+                line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    private int readByte() throws IOException {
+        final var b = in.read();
+        if(b < 0)
+            throw new EOFException();
+        return b;
+    }
+
+    private void readFully(byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            final var n = in.read(buffer, read, buffer.length - read);
+            if(n < 0)
+                throw new EOFException();
+            read += n;
+        }
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            final var sha1 = MessageDigest.getInstance("SHA-1").digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(sha1);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.ziqni.load;
+
+import com.ziqni.admin.EventPublisher;
+import com.ziqni.admin.sdk.JSON;
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import com.ziqni.admin.sdk.model.ModelApiResponse;
+import com.ziqni.fake.FakeZiqniClient;
+import com.ziqni.fake.FakeZiqniServer;
+import com.ziqni.member.MemberAccessTokenService;
+import com.ziqni.member.MemberTokenCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drives an in-process {@link FakeZiqniServer}. Events take the same {@link EventPublisher} batching path as against
+ * the platform, only the transport underneath is the fake server's STOMP socket. A member session is the member's
+ * token from the fake token endpoint plus its own connected socket.
+ * <p>
+ * Both paths go through {@link FakeZiqniClient}, not the SDK factories, and sessions are not pooled by a
+ * {@link com.ziqni.member.MemberSessionManager}, so the SDKs' transport and the session manager are not measured.
+ */
+public class FakeLoadTarget implements LoadTarget {
+
+    private static final String RESPONSES = "/user/queue/rpc-results";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final FakeZiqniServer server;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final FakeZiqniClient adminClient;
+    private final EventPublisher eventPublisher;
+    private final MemberTokenCache tokenCache;
+    private final String apiKey;
+    private final ConcurrentHashMap<String, CompletableFuture<FakeZiqniClient>> sessions = new ConcurrentHashMap<>();
+
+    public FakeLoadTarget(LoadGeneratorConfig config) throws IOException {
+        this(config, FakeZiqniServer.builder().members(config.members()).unitsOfMeasure(Set.of(config.unitOfMeasure())));
+    }
+
+    public FakeLoadTarget(LoadGeneratorConfig config, FakeZiqniServer.Builder server) throws IOException {
+        this.server = server.responseDestination(RESPONSES).start();
+        this.apiKey = config.apiKey() == null ? "load-test" : config.apiKey();
+        MemberAccessTokenService.setTokenUri(this.server.tokenUri());
+
+        this.adminClient = FakeZiqniClient.connect(httpClient, this.server.webSocketUri(), RESPONSES, CONNECT_TIMEOUT).join();
+        this.eventPublisher = EventPublisher.builder(this::createEvents)
+                .overflowPolicy(EventPublisher.OverflowPolicy.FAIL_FAST)
+                .build();
+        this.tokenCache = new MemberTokenCache(config.members(), Duration.ofMinutes(5));
+    }
+
+    public FakeZiqniServer server() {
+        return server;
+    }
+
+    @Override
+    public String description() {
+        return "fake server through FakeZiqniClient, bypassing the SDK factories and MemberSessionManager";
+    }
+
+    @Override
+    public CompletableFuture<?> openSession(String memberRefId) {
+        return sessions.computeIfAbsent(memberRefId, ref -> tokenCache.getToken(ref, apiKey)
+                .thenCompose(token -> FakeZiqniClient.connect(httpClient, server.webSocketUri(), RESPONSES, CONNECT_TIMEOUT))
+                .whenComplete((client, throwable) -> {
+                    if(throwable != null)
+                        sessions.remove(ref);
+                }));
+    }
+
+    @Override
+    public CompletableFuture<?> sendEvent(CreateEventRequest event) {
+        return eventPublisher.publish(event);
+    }
+
+    @Override
+    public void close() {
+        eventPublisher.close();
+        sessions.values().forEach(session -> session.thenAccept(FakeZiqniClient::close));
+        adminClient.close();
+        tokenCache.close();
+        server.close();
+        MemberAccessTokenService.setTokenUri(MemberAccessTokenService.DEFAULT_TOKEN_URI);
+    }
+
+    private CompletableFuture<ModelApiResponse> createEvents(List<CreateEventRequest> events) {
+        final String body;
+        try {
+            body = JSON.getDefault().getMapper().writeValueAsString(events);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return adminClient.request("/aapi/createEvents", body).thenApply(reply -> {
+            try {
+                return JSON.getDefault().getMapper().readValue(reply, ModelApiResponse.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
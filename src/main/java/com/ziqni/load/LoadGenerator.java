@@ -0,0 +1,208 @@
+package com.ziqni.load;
+
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Open-loop load: requests are sent on a fixed schedule whether or not earlier ones have been answered, and each
+ * latency is measured from the time the request was due rather than when it went out. A stalled target therefore
+ * shows up as latency for every request that should have been sent during the stall, instead of quietly slowing
+ * the generator down (coordinated omission).
+ * <p>
+ * A run opens a session for every simulated member at the session rate, then sends events for those members at
+ * the event rate through the warmup and the measured duration. Arrivals beyond maxOutstanding unanswered requests
+ * are not sent and are counted as dropped; they have no latency and are left out of the percentiles. Requests still
+ * unanswered once the drain timeout is up are counted as timed out and recorded at the time they had waited since
+ * they were due, so a target that stops answering cannot flatter the percentiles.
+ */
+public class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadGeneratorConfig config;
+    private final LoadTarget target;
+    private final Duration drainTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LoadGenerator(LoadGeneratorConfig config, LoadTarget target) {
+        this(config, target, DRAIN_TIMEOUT);
+    }
+
+    LoadGenerator(LoadGeneratorConfig config, LoadTarget target, Duration drainTimeout) {
+        this.config = config;
+        this.target = target;
+        this.drainTimeout = drainTimeout;
+    }
+
+    public LoadReport run() throws InterruptedException {
+        try {
+            final var sessions = new Operation("session", index -> target.openSession(config.memberRefId(index)));
+            final var sessionsStart = System.nanoTime();
+            schedule(sessions, config.sessionsPerSecond(), config.members(), sessionsStart, sessionsStart);
+            final var sessionsResult = sessions.finish(Duration.ofNanos((long) (config.members() / config.sessionsPerSecond() * 1e9)));
+
+            if(config.eventsPerSecond() == 0)
+                return new LoadReport(target.description(), List.of(sessionsResult));
+
+            final var events = new Operation("event", index -> target.sendEvent(event(index % config.members())));
+            final var eventsStart = System.nanoTime();
+            final var measureFrom = eventsStart + config.warmup().toNanos();
+            final var arrivals = (long) ((config.warmup().toNanos() + config.duration().toNanos()) / 1e9 * config.eventsPerSecond());
+            schedule(events, config.eventsPerSecond(), arrivals, eventsStart, measureFrom);
+            final var eventsResult = events.finish(config.duration());
+
+            return new LoadReport(target.description(), List.of(sessionsResult, eventsResult));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private CreateEventRequest event(int member) {
+        return new CreateEventRequest()
+                .memberRefId(config.memberRefId(member))
+                .action(config.action())
+                .entityRefId("load-test")
+                .sourceValue(1.0)
+                .transactionTimestamp(OffsetDateTime.now())
+                .eventRefId(UUID.randomUUID().toString())
+                .unitOfMeasure(config.unitOfMeasure());
+    }
+
+    /**
+     * Issues the arrivals at a constant rate from the calling thread, then waits for the answers.
+     */
+    private void schedule(Operation operation, double perSecond, long arrivals, long start, long measureFrom) throws InterruptedException {
+        final var intervalNanos = 1e9 / perSecond;
+        var nextProgress = start + PROGRESS_INTERVAL.toNanos();
+
+        for (long i = 0; i < arrivals; i++) {
+            final var intended = start + (long) (i * intervalNanos);
+            long remaining;
+            while ((remaining = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+                if(Thread.interrupted())
+                    throw new InterruptedException();
+            }
+
+            final var measured = intended - measureFrom >= 0;
+            final var arrival = i;
+            if(operation.outstanding.get() >= config.maxOutstanding()) {
+                if(measured)
+                    operation.dropped.increment();
+            } else {
+                operation.outstanding.incrementAndGet();
+                executor.execute(() -> operation.issue(arrival, intended, measured));
+            }
+
+            if(intended - nextProgress >= 0) {
+                operation.progress(PROGRESS_INTERVAL);
+                nextProgress += PROGRESS_INTERVAL.toNanos();
+            }
+        }
+
+        final var deadline = System.nanoTime() + drainTimeout.toNanos();
+        while (operation.outstanding.get() > 0 && deadline - System.nanoTime() > 0)
+            TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    private final class Operation {
+        private final String name;
+        private final IntFunction<CompletableFuture<?>> request;
+        private final Recorder latency = new Recorder(3);
+        private final Recorder serviceTime = new Recorder(3);
+        private final Histogram latencyTotal = new Histogram(3);
+        private final Histogram serviceTimeTotal = new Histogram(3);
+        private final AtomicInteger outstanding = new AtomicInteger();
+        // Measured arrivals still unanswered, to their intended send time. Whoever removes one records it
+        private final ConcurrentHashMap<Long, Long> unanswered = new ConcurrentHashMap<>();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        private Operation(String name, IntFunction<CompletableFuture<?>> request) {
+            this.name = name;
+            this.request = request;
+        }
+
+        private void issue(long arrival, long intended, boolean measured) {
+            if(measured)
+                unanswered.put(arrival, intended);
+            final var sent = System.nanoTime();
+            CompletableFuture<?> future;
+            try {
+                future = request.apply((int) (arrival % Integer.MAX_VALUE));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            future.whenComplete((result, throwable) -> {
+                final var now = System.nanoTime();
+                if(measured && unanswered.remove(arrival) != null) {
+                    if(throwable != null) {
+                        failed.increment();
+                    } else {
+                        completed.increment();
+                        latency.recordValue(Math.max(0, (now - intended) / 1000));
+                        serviceTime.recordValue(Math.max(0, (now - sent) / 1000));
+                    }
+                }
+                // Last, so a drained operation has recorded everything
+                outstanding.decrementAndGet();
+            });
+        }
+
+        private void progress(Duration interval) {
+            final var histogram = latency.getIntervalHistogram();
+            latencyTotal.add(histogram);
+            serviceTimeTotal.add(serviceTime.getIntervalHistogram());
+            logger.info("+++ {}: {}/s p50={}ms p99={}ms max={}ms outstanding={} failed={} dropped={}",
+                    name,
+                    histogram.getTotalCount() / Math.max(1, interval.toSeconds()),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getMaxValue() / 1000.0,
+                    outstanding.get(), failed.sum(), dropped.sum());
+        }
+
+        /**
+         * @param measured the window the recorded arrivals were scheduled over, throughput is relative to it
+         */
+        private LoadReport.OperationResult finish(Duration measured) {
+            final var now = System.nanoTime();
+            long timedOut = 0;
+            for (Long arrival : unanswered.keySet()) {
+                final var intended = unanswered.remove(arrival);
+                if(intended != null) {
+                    latency.recordValue(Math.max(0, (now - intended) / 1000));
+                    timedOut++;
+                }
+            }
+            latencyTotal.add(latency.getIntervalHistogram());
+            serviceTimeTotal.add(serviceTime.getIntervalHistogram());
+            if(outstanding.get() > 0)
+                logger.warn("+++ {}: {} requests still unanswered after {}", name, outstanding.get(), drainTimeout);
+            return new LoadReport.OperationResult(name, measured, latencyTotal.copy(), serviceTimeTotal.copy(),
+                    completed.sum(), failed.sum(), dropped.sum(), timedOut);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.ziqni.load;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Settings for a headless run, read from {@code --key=value} arguments and optionally a properties file named by
+ * {@code --config=<path>}. Arguments override the file. Durations are ISO-8601 ({@code PT30S}) or plain seconds.
+ * <pre>
+ *   --mode=load|admin|member      what to run, default load
+ *   --target=fake|ziqni           where load goes, default fake
+ *   --apiKey=... --space=... --memberRefId=...
+ *   --members=1000                simulated members, each opens a member session
+ *   --sessionsPerSecond=200       arrival rate of session opens
+ *   --eventsPerSecond=1000        arrival rate of createEvents through the event publisher
+ *   --warmup=PT10S --duration=PT60S
+ *   --maxOutstanding=100000       arrivals beyond this many unanswered requests are counted as dropped
+ *   --output=load-results         directory for the .hgrm percentile files and summary
+ *   --metricsFile=ziqni.prom      Prometheus text file the client metrics are exported to, off by default
+ *   --metricsInterval=PT15S
+ * </pre>
+ */
+public record LoadGeneratorConfig(
+        Mode mode,
+        Target target,
+        String apiKey,
+        String space,
+        String memberRefId,
+        int members,
+        String memberPrefix,
+        double sessionsPerSecond,
+        double eventsPerSecond,
+        Duration warmup,
+        Duration duration,
+        int maxOutstanding,
+        String action,
+        String unitOfMeasure,
+        Path output,
+        Path metricsFile,
+        Duration metricsInterval
+) {
+
+    public enum Mode {
+        /** Open-loop load against the target */
+        LOAD,
+        /** Run the admin sample once without prompting */
+        ADMIN,
+        /** Run the member sample once without prompting */
+        MEMBER
+    }
+
+    public enum Target {
+        /** An in-process {@link com.ziqni.fake.FakeZiqniServer} */
+        FAKE,
+        /** The Ziqni platform */
+        ZIQNI
+    }
+
+    public LoadGeneratorConfig {
+        if(members < 1)
+            throw new IllegalArgumentException("members must be positive");
+        if(sessionsPerSecond <= 0 || eventsPerSecond < 0)
+            throw new IllegalArgumentException("sessionsPerSecond must be positive and eventsPerSecond not negative");
+        if(maxOutstanding < 1)
+            throw new IllegalArgumentException("maxOutstanding must be positive");
+        if(target == Target.ZIQNI || mode != Mode.LOAD) {
+            if(apiKey == null || apiKey.length() < 5)
+                throw new IllegalArgumentException("apiKey is missing or too short");
+            if(space == null || space.isBlank())
+                throw new IllegalArgumentException("space is required");
+        }
+        if(mode == Mode.MEMBER && (memberRefId == null || memberRefId.isBlank()))
+            throw new IllegalArgumentException("memberRefId is required in member mode");
+    }
+
+    public static LoadGeneratorConfig fromArgs(String... args) throws IOException {
+        final var arguments = new Properties();
+        for (String arg : args) {
+            if(!arg.startsWith("--"))
+                throw new IllegalArgumentException("Expected --key=value but got " + arg);
+            final var equals = arg.indexOf('=');
+            if(equals < 0)
+                arguments.setProperty(arg.substring(2), "true");
+            else
+                arguments.setProperty(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        final var properties = new Properties();
+        final var file = arguments.getProperty("config");
+        if(file != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(file))) {
+                properties.load(reader);
+            }
+        }
+        properties.putAll(arguments);
+        return fromProperties(properties);
+    }
+
+    public static LoadGeneratorConfig fromProperties(Properties properties) {
+        return new LoadGeneratorConfig(
+                Mode.valueOf(properties.getProperty("mode", "load").toUpperCase(Locale.ROOT)),
+                Target.valueOf(properties.getProperty("target", "fake").toUpperCase(Locale.ROOT)),
+                properties.getProperty("apiKey"),
+                properties.getProperty("space"),
+                properties.getProperty("memberRefId"),
+                Integer.parseInt(properties.getProperty("members", "1000")),
+                properties.getProperty("memberPrefix", "load-member-"),
+                Double.parseDouble(properties.getProperty("sessionsPerSecond", "200")),
+                Double.parseDouble(properties.getProperty("eventsPerSecond", "1000")),
+                duration(properties.getProperty("warmup", "PT10S")),
+                duration(properties.getProperty("duration", "PT60S")),
+                Integer.parseInt(properties.getProperty("maxOutstanding", "100000")),
+                properties.getProperty("action", "buy"),
+                properties.getProperty("unitOfMeasure", "other"),
+                Path.of(properties.getProperty("output", "load-results")),
+                properties.containsKey("metricsFile") ? Path.of(properties.getProperty("metricsFile")) : null,
+                duration(properties.getProperty("metricsInterval", "PT15S"))
+        );
+    }
+
+    public String memberRefId(int index) {
+        return memberPrefix + index;
+    }
+
+    private static Duration duration(String value) {
+        return value.startsWith("P") || value.startsWith("p") ? Duration.parse(value) : Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+    }
+}
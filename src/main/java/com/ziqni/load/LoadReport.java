@@ -0,0 +1,94 @@
+package com.ziqni.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a load run, one entry per operation. Latencies are recorded in microseconds; latency is measured from
+ * the time the request was due to be sent, service time from when it actually was.
+ * <p>
+ * The latency percentiles cover completed and timed out requests, the latter at the time they waited before the
+ * run gave up on them. Failed requests and dropped arrivals, which were never sent, are counted but not part of
+ * them.
+ *
+ * @param target what the load was driven through, see {@link LoadTarget#description()}
+ */
+public record LoadReport(String target, List<OperationResult> operations) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    public record OperationResult(String name, Duration measured, Histogram latency, Histogram serviceTime,
+                                  long completed, long failed, long dropped, long timedOut) {
+
+        /**
+         * @return successful completions per second over the measured window
+         */
+        public double throughput() {
+            final var seconds = measured.toNanos() / 1e9;
+            return seconds == 0 ? 0 : completed / seconds;
+        }
+
+        public double latencyMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+        }
+    }
+
+    public OperationResult operation(String name) {
+        return operations.stream().filter(operation -> operation.name().equals(name)).findFirst().orElse(null);
+    }
+
+    /**
+     * Writes {@code <operation>-latency.hgrm} and {@code <operation>-service.hgrm} percentile distributions, in
+     * milliseconds, and summary.txt into the directory.
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (OperationResult operation : operations) {
+            writeDistribution(directory.resolve(operation.name() + "-latency.hgrm"), operation.latency());
+            writeDistribution(directory.resolve(operation.name() + "-service.hgrm"), operation.serviceTime());
+        }
+        Files.writeString(directory.resolve("summary.txt"), toString());
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (var out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final var summary = new StringBuilder();
+        summary.append("target: ").append(target).append(System.lineSeparator());
+        summary.append("latency percentiles include timed out requests; failed requests and dropped arrivals are excluded")
+                .append(System.lineSeparator());
+        for (OperationResult operation : operations) {
+            summary.append(String.format(Locale.ROOT, "%-8s completed=%d failed=%d dropped=%d timedOut=%d throughput=%.1f/s over %.1fs%n",
+                    operation.name(), operation.completed(), operation.failed(), operation.dropped(), operation.timedOut(),
+                    operation.throughput(), operation.measured().toMillis() / 1000.0));
+            summary.append(String.format(Locale.ROOT, "%-8s latency(ms)", ""));
+            for (double percentile : PERCENTILES)
+                summary.append(String.format(Locale.ROOT, " p%s=%.3f", format(percentile), operation.latencyMillis(percentile)));
+            summary.append(String.format(Locale.ROOT, " max=%.3f mean=%.3f%n",
+                    operation.latency().getMaxValue() / MICROS_PER_MILLI, operation.latency().getMean() / MICROS_PER_MILLI));
+            summary.append(String.format(Locale.ROOT, "%-8s service(ms) p50=%.3f p99=%.3f max=%.3f%n", "",
+                    operation.serviceTime().getValueAtPercentile(50) / MICROS_PER_MILLI,
+                    operation.serviceTime().getValueAtPercentile(99) / MICROS_PER_MILLI,
+                    operation.serviceTime().getMaxValue() / MICROS_PER_MILLI));
+        }
+        return summary.toString();
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
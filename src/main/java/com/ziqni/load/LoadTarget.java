@@ -0,0 +1,34 @@
+package com.ziqni.load;
+
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The two paths the load generator drives. Both must return without waiting for the platform; anything slow
+ * belongs in the returned future so it is measured rather than delaying the next arrival.
+ */
+public interface LoadTarget extends AutoCloseable {
+
+    /**
+     * Opens the member's session: fetches its token and connects its streaming client.
+     */
+    CompletableFuture<?> openSession(String memberRefId);
+
+    /**
+     * Sends one event on the admin path.
+     *
+     * @return completes once the platform accepted the event
+     */
+    CompletableFuture<?> sendEvent(CreateEventRequest event);
+
+    /**
+     * @return one line on what the load actually exercises, written at the top of the report
+     */
+    default String description() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    void close();
+}
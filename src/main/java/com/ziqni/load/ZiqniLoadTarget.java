@@ -0,0 +1,66 @@
+package com.ziqni.load;
+
+import com.ziqni.admin.AdminStreamingReadiness;
+import com.ziqni.admin.EventPublisher;
+import com.ziqni.admin.sdk.ZiqniAdminApiFactory;
+import com.ziqni.admin.sdk.configuration.AdminApiClientConfigBuilder;
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import com.ziqni.member.MemberSessionManager;
+import com.ziqni.member.MemberTokenCache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drives the Ziqni platform: events go through an {@link EventPublisher} on one admin connection and every
+ * simulated member gets its own session from a {@link MemberSessionManager}.
+ */
+public class ZiqniLoadTarget implements LoadTarget {
+
+    private final ZiqniAdminApiFactory adminApiFactory;
+    private final EventPublisher eventPublisher;
+    private final MemberTokenCache tokenCache;
+    private final MemberSessionManager sessions;
+
+    public ZiqniLoadTarget(LoadGeneratorConfig config) throws Exception {
+        final var configuration = AdminApiClientConfigBuilder.build();
+        configuration.setApiKey(true);
+        configuration.setAdminClientIdentityApiKey(config.apiKey());
+        configuration.setAdminClientIdentityRealm(config.space());
+        configuration.setAdminClientIdentityProjectUrl(config.space() + ".ziqni.app");
+
+        this.adminApiFactory = new ZiqniAdminApiFactory(configuration);
+        AdminStreamingReadiness.connect(adminApiFactory, Duration.ofSeconds(30)).join();
+
+        // Measuring the platform, so a full publisher rejects rather than blocking the arrival
+        this.eventPublisher = EventPublisher.builder(adminApiFactory)
+                .overflowPolicy(EventPublisher.OverflowPolicy.FAIL_FAST)
+                .build();
+        this.tokenCache = new MemberTokenCache(config.members(), Duration.ofMinutes(5));
+        this.sessions = new MemberSessionManager(config.apiKey(), tokenCache, config.members(), Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+
+    @Override
+    public String description() {
+        return "Ziqni platform through the SDK factories and MemberSessionManager";
+    }
+
+    @Override
+    public CompletableFuture<?> openSession(String memberRefId) {
+        return sessions.session(memberRefId);
+    }
+
+    @Override
+    public CompletableFuture<?> sendEvent(CreateEventRequest event) {
+        return eventPublisher.publish(event);
+    }
+
+    @Override
+    public void close() {
+        eventPublisher.close();
+        sessions.close();
+        tokenCache.close();
+        if(adminApiFactory.getStreamingClient() != null)
+            adminApiFactory.getStreamingClient().stop();
+    }
+}
@@ -0,0 +1,27 @@
+package com.ziqni.member;
+
+import com.ziqni.member.sdk.model.Competition;
+import com.ziqni.member.sdk.model.Contest;
+import com.ziqni.member.sdk.model.Reward;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The competitions a member can see with their contests and the contests' rewards.
+ *
+ * @param roundTrips requests it took to load, for comparing against one request per entity
+ */
+public record CompetitionCatalogue(List<Competition> competitions,
+                                   Map<String, List<Contest>> contestsByCompetition,
+                                   Map<String, List<Reward>> rewardsByContest,
+                                   int roundTrips) {
+
+    public List<Contest> contests(String competitionId) {
+        return contestsByCompetition.getOrDefault(competitionId, List.of());
+    }
+
+    public List<Reward> rewards(String contestId) {
+        return rewardsByContest.getOrDefault(contestId, List.of());
+    }
+}
@@ -0,0 +1,144 @@
+package com.ziqni.member;
+
+import com.ziqni.member.sdk.ZiqniMemberApiFactory;
+import com.ziqni.member.sdk.model.Competition;
+import com.ziqni.member.sdk.model.Contest;
+import com.ziqni.member.sdk.model.ContestFilter;
+import com.ziqni.member.sdk.model.ContestRequest;
+import com.ziqni.member.sdk.model.EntityFilter;
+import com.ziqni.member.sdk.model.Reward;
+import com.ziqni.member.sdk.model.RewardRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the competition, contest and reward graph in a few batched round trips instead of one request per
+ * entity. Contests are looked up for many competitions per request and rewards for many contests per request.
+ * Each contest batch starts its reward lookups as soon as it arrives, so the branches overlap rather than
+ * running level by level.
+ */
+public class CompetitionCatalogueLoader {
+
+    private final BiFunction<List<String>, Integer, CompletableFuture<List<Contest>>> contestsPage;
+    private final BiFunction<List<String>, Integer, CompletableFuture<List<Reward>>> rewardsPage;
+    private final int batchSize;
+    private final int pageSize;
+
+    /**
+     * @param contestsPage competition ids and skip to one page of their contests
+     * @param rewardsPage  contest ids and skip to one page of their rewards
+     * @param batchSize    ids per request
+     * @param pageSize     results per page, a shorter page ends the lookup
+     */
+    public CompetitionCatalogueLoader(BiFunction<List<String>, Integer, CompletableFuture<List<Contest>>> contestsPage,
+                                      BiFunction<List<String>, Integer, CompletableFuture<List<Reward>>> rewardsPage,
+                                      int batchSize,
+                                      int pageSize) {
+        this.contestsPage = contestsPage;
+        this.rewardsPage = rewardsPage;
+        this.batchSize = batchSize;
+        this.pageSize = pageSize;
+    }
+
+    public static CompetitionCatalogueLoader forMemberApi(ZiqniMemberApiFactory ziqniMemberApiFactory, String currencyKey) {
+        final var pageSize = 100;
+        return new CompetitionCatalogueLoader(
+                (competitionIds, skip) -> ziqniMemberApiFactory.getContestsApi()
+                        .getContests(new ContestRequest().contestFilter(new ContestFilter()
+                                .competitionIds(competitionIds)
+                                .skip(skip)
+                                .limit(pageSize)))
+                        .thenApply(response -> data(response.getData())),
+                (contestIds, skip) -> ziqniMemberApiFactory.getRewardsApi()
+                        .getRewards(new RewardRequest()
+                                .skip(skip)
+                                .limit(pageSize)
+                                .currencyKey(currencyKey)
+                                .addEntityFilterItem(new EntityFilter()
+                                        .entityIds(contestIds)
+                                        .entityType(Contest.class.getSimpleName())))
+                        .thenApply(response -> data(response.getData())),
+                50,
+                pageSize
+        );
+    }
+
+    public CompletableFuture<CompetitionCatalogue> load(List<Competition> competitions) {
+        return load(competitions, contest -> {});
+    }
+
+    /**
+     * @param onContest called for every contest as soon as its batch arrives, e.g. to subscribe to its leaderboard
+     */
+    public CompletableFuture<CompetitionCatalogue> load(List<Competition> competitions, Consumer<Contest> onContest) {
+        final var roundTrips = new AtomicInteger();
+        final var contests = new ConcurrentHashMap<String, List<Contest>>();
+        final var rewards = new ConcurrentHashMap<String, List<Reward>>();
+
+        final var competitionIds = competitions.stream().map(Competition::getId).filter(Objects::nonNull).distinct().toList();
+
+        final var branches = batches(competitionIds).stream()
+                .map(batch -> loadAll(contestsPage, batch, roundTrips).thenCompose(found -> {
+                    // Each id is in exactly one batch, so each list is only appended to by one branch
+                    found.forEach(contest -> {
+                        if(contest.getCompetitionId() != null)
+                            contests.computeIfAbsent(contest.getCompetitionId(), id -> new ArrayList<>()).add(contest);
+                        onContest.accept(contest);
+                    });
+                    final var contestIds = found.stream().map(Contest::getId).filter(Objects::nonNull).toList();
+                    return CompletableFuture.allOf(batches(contestIds).stream()
+                            .map(contestBatch -> loadAll(rewardsPage, contestBatch, roundTrips).thenAccept(page ->
+                                    page.stream()
+                                            .filter(reward -> reward.getEntityId() != null)
+                                            .forEach(reward -> rewards.computeIfAbsent(reward.getEntityId(), id -> new ArrayList<>()).add(reward))))
+                            .toArray(CompletableFuture[]::new));
+                }))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(branches)
+                .thenApply(ignored -> new CompetitionCatalogue(
+                        List.copyOf(competitions),
+                        immutable(contests),
+                        immutable(rewards),
+                        roundTrips.get()
+                ));
+    }
+
+    private List<List<String>> batches(List<String> ids) {
+        final var batches = new ArrayList<List<String>>();
+        for (int i = 0; i < ids.size(); i += batchSize)
+            batches.add(ids.subList(i, Math.min(ids.size(), i + batchSize)));
+        return batches;
+    }
+
+    private <T> CompletableFuture<List<T>> loadAll(BiFunction<List<String>, Integer, CompletableFuture<List<T>>> page, List<String> ids, AtomicInteger roundTrips) {
+        return loadPage(page, ids, 0, new ArrayList<>(), roundTrips);
+    }
+
+    private <T> CompletableFuture<List<T>> loadPage(BiFunction<List<String>, Integer, CompletableFuture<List<T>>> page, List<String> ids, int skip, List<T> results, AtomicInteger roundTrips) {
+        roundTrips.incrementAndGet();
+        return page.apply(ids, skip).thenCompose(found -> {
+            results.addAll(found);
+            return found.size() < pageSize
+                    ? CompletableFuture.completedFuture(results)
+                    : loadPage(page, ids, skip + pageSize, results, roundTrips);
+        });
+    }
+
+    private static <T> List<T> data(List<T> data) {
+        return data == null ? List.of() : data;
+    }
+
+    private static <T> Map<String, List<T>> immutable(Map<String, List<T>> map) {
+        return map.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> List.copyOf(entry.getValue())));
+    }
+}
@@ -1,69 +1,157 @@
 package com.ziqni.member;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.ziqni.member.models.MemberTokenRequest;
 import com.ziqni.member.models.MemberTokenResponse;
 import com.ziqni.member.sdk.JSON;
+import com.ziqni.metrics.Counter;
+import com.ziqni.metrics.Histogram;
+import com.ziqni.metrics.Metrics;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public class MemberAccessTokenService {
 
+    public static final URI DEFAULT_TOKEN_URI = URI.create("https://member-api.ziqni.com/member-token");
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    // One client for all token requests so connections (and their TLS sessions) are kept alive and reused
+    private static volatile HttpClient httpClient = newHttpClient(null);
+    private static volatile URI tokenUri = DEFAULT_TOKEN_URI;
+
+    // Looked up once, from the registry in place when the class loads, rather than on every token request
+    private static final Histogram FETCH_TIME = Metrics.registry().timer("ziqni_token_fetch_seconds", "Member token request latency");
+    private static final Counter FETCH_FAILURES = Metrics.registry().counter("ziqni_token_fetch_failures_total", "Member token requests that failed");
+
+    public static HttpClient newHttpClient(Executor executor) {
+        final var builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // Falls back to HTTP/1.1 if the server does not negotiate h2
+                .connectTimeout(TIMEOUT);
+
+        if(executor != null)
+            builder.executor(executor);
+
+        return builder.build();
+    }
+
+    /**
+     * Replaces the shared client, e.g. to run response handling on a dedicated executor.
+     */
+    public static void setExecutor(Executor executor) {
+        httpClient = newHttpClient(executor);
+    }
+
+    /**
+     * Points token requests somewhere else, e.g. at a local FakeZiqniServer.
+     */
+    public static void setTokenUri(URI uri) {
+        tokenUri = uri;
+    }
+
     public static MemberTokenResponse getToken(String yourMemberId, String apiKey){
-        try {
-            // Define the URL
-            URL url = new URL("https://member-api.ziqni.com/member-token");
-
-            // Open a connection
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
-
-            // Create the request body
-            final var memberTokenRequest = new MemberTokenRequest()
-                    .apiKey(apiKey) // Set yourApiKey to the API key you received from Ziqni
-                    .member(yourMemberId) // Set yourMemberId to the member ID you want to get a token for
-                    .isReferenceId(true) // Set to true if yourMemberId is a reference ID, i.e. not a Ziqni member ID
-                    .currencyKey("USD") // Set the currency key for the member
-                    .languageKey("en") // Set the language key for the member
-                    .expires(3600); // Set the token expiration time in seconds
-
-            // Send request
-            final var requestBody = JSON.getDefault().getMapper().writeValueAsBytes(memberTokenRequest);
-
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = requestBody;
-                os.write(input, 0, input.length);
-            }
+        return getToken(defaultTokenRequest(yourMemberId, apiKey));
+    }
 
-            connection.disconnect();
+    public static MemberTokenRequest defaultTokenRequest(String yourMemberId, String apiKey){
+        return new MemberTokenRequest()
+                .apiKey(apiKey) // Set yourApiKey to the API key you received from Ziqni
+                .member(yourMemberId) // Set yourMemberId to the member ID you want to get a token for
+                .isReferenceId(true) // Set to true if yourMemberId is a reference ID, i.e. not a Ziqni member ID
+                .currencyKey("USD") // Set the currency key for the member
+                .languageKey("en") // Set the language key for the member
+                .expires(3600); // Set the token expiration time in seconds
+    }
 
-            // Read the response
-            int status = connection.getResponseCode();
-            if (status == HttpURLConnection.HTTP_OK) {
-                BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream(), "utf-8"));
-                StringBuilder response = new StringBuilder();
-                String responseLine;
-                while ((responseLine = br.readLine()) != null) {
-                    response.append(responseLine.trim());
-                }
+    public static MemberTokenResponse getToken(MemberTokenRequest memberTokenRequest){
+        return getTokenAsync(memberTokenRequest)
+                .exceptionally(throwable -> {
+                    throwable.printStackTrace();
+                    return null;
+                })
+                .join();
+    }
 
-                // Parse JSON response
-                return JSON.getDefault().getMapper().readValue(response.toString(), MemberTokenResponse.class);
+    public static CompletableFuture<MemberTokenResponse> getTokenAsync(String yourMemberId, String apiKey){
+        return getTokenAsync(defaultTokenRequest(yourMemberId, apiKey));
+    }
+
+    public static CompletableFuture<MemberTokenResponse> getTokenAsync(MemberTokenRequest memberTokenRequest){
+        final byte[] requestBody;
+        try {
+            requestBody = JSON.getDefault().getMapper().writeValueAsBytes(memberTokenRequest);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-            } else {
-                System.out.println("Request failed with HTTP code: " + status);
-                return null;
+        final var request = HttpRequest.newBuilder(tokenUri)
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+                .build();
+
+        final var started = System.nanoTime();
+        return httpClient.sendAsync(request, MemberAccessTokenService::memberTokenResponseHandler)
+                .thenApply(response -> response.body().get())
+                .whenComplete((response, throwable) -> {
+                    FETCH_TIME.recordNanosSince(started);
+                    if(throwable != null)
+                        FETCH_FAILURES.increment();
+                });
+    }
+
+    /**
+     * A 200 is parsed straight from the body stream. Anything else keeps its body, which carries the platform's
+     * error code, in the exception. The stream is read by the supplier on the completing thread rather than inside
+     * the mapping, where blocking on it would stall the client's own I/O.
+     */
+    private static HttpResponse.BodySubscriber<Supplier<MemberTokenResponse>> memberTokenResponseHandler(HttpResponse.ResponseInfo responseInfo) {
+        final var statusCode = responseInfo.statusCode();
+        if(statusCode != 200) {
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), body -> () -> {
+                throw new MemberTokenException(statusCode, body);
+            });
+        }
 
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(), stream -> () -> {
+            try (stream) {
+                return JSON.getDefault().getMapper().readValue(stream, MemberTokenResponse.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+        });
+    }
+
+    /**
+     * The token endpoint answered with something other than a 200.
+     */
+    public static class MemberTokenException extends IllegalStateException {
+        private final int statusCode;
+        private final String body;
+
+        public MemberTokenException(int statusCode, String body) {
+            super("Request failed with HTTP code: " + statusCode + (body == null || body.isEmpty() ? "" : ", " + body));
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return the response body as sent, e.g. the platform's error JSON
+         */
+        public String getBody() {
+            return body;
         }
     }
 }
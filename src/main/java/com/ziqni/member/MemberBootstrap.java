@@ -0,0 +1,123 @@
+package com.ziqni.member;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the queries a member app needs at start up concurrently, each with its own timeout, and gathers the
+ * outcome into one {@link MemberContext}. A query that fails or times out does not fail the bootstrap, its
+ * result is simply missing from the context.
+ * <p>
+ * Each {@link Query} is also a typed handle: its own future completes as soon as that query does, so work that
+ * depends on one result does not wait for the slowest query.
+ */
+public class MemberBootstrap {
+
+    public enum Status { OK, FAILED, TIMED_OUT }
+
+    public record Outcome(String name, Status status, Duration latency, Throwable error) {}
+
+    private final Duration defaultTimeout;
+    private final List<Query<?>> queries = new ArrayList<>();
+    private boolean started = false;
+
+    public MemberBootstrap(Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public <T> Query<T> query(String name, Supplier<CompletableFuture<T>> call) {
+        return query(name, defaultTimeout, call);
+    }
+
+    public synchronized <T> Query<T> query(String name, Duration timeout, Supplier<CompletableFuture<T>> call) {
+        if(started)
+            throw new IllegalStateException("Bootstrap already started");
+        final var query = new Query<>(name, timeout, call);
+        queries.add(query);
+        return query;
+    }
+
+    /**
+     * Starts every query at once.
+     *
+     * @return completes when every query has completed, failed or timed out
+     */
+    public synchronized CompletableFuture<MemberContext> start() {
+        if(started)
+            throw new IllegalStateException("Bootstrap already started");
+        started = true;
+
+        final var startNanos = System.nanoTime();
+        final var all = List.copyOf(queries);
+        all.forEach(Query::start);
+
+        return CompletableFuture.allOf(all.stream().map(query -> query.settled).toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> new MemberContext(all, Duration.ofNanos(System.nanoTime() - startNanos)));
+    }
+
+    public static final class Query<T> {
+        private final String name;
+        private final Duration timeout;
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final CompletableFuture<Outcome> settled = new CompletableFuture<>();
+
+        private Query(String name, Duration timeout, Supplier<CompletableFuture<T>> call) {
+            this.name = name;
+            this.timeout = timeout;
+            this.call = call;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return completes with this query's response as soon as it arrives
+         */
+        public CompletableFuture<T> result() {
+            return result;
+        }
+
+        Outcome outcome() {
+            return settled.join();
+        }
+
+        T value() {
+            return result.isDone() && !result.isCompletedExceptionally() ? result.join() : null;
+        }
+
+        private void start() {
+            final var startNanos = System.nanoTime();
+            CompletableFuture<T> running;
+            try {
+                running = call.get();
+            } catch (RuntimeException e) {
+                running = CompletableFuture.failedFuture(e);
+            }
+
+            running.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((value, throwable) -> {
+                        final var latency = Duration.ofNanos(System.nanoTime() - startNanos);
+                        // The result first, the context reads it once everything has settled
+                        if(throwable == null) {
+                            result.complete(value);
+                            settled.complete(new Outcome(name, Status.OK, latency, null));
+                            return;
+                        }
+                        final var cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause()
+                                : throwable;
+                        final var status = cause instanceof TimeoutException ? Status.TIMED_OUT : Status.FAILED;
+                        result.completeExceptionally(cause);
+                        settled.complete(new Outcome(name, status, latency, cause));
+                    });
+        }
+    }
+}
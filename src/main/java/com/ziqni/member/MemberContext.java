@@ -0,0 +1,65 @@
+package com.ziqni.member;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of everything the member bootstrap loaded, with how long each query took.
+ */
+public final class MemberContext {
+
+    private final Map<MemberBootstrap.Query<?>, Object> values;
+    private final List<MemberBootstrap.Outcome> outcomes;
+    private final Duration elapsed;
+
+    MemberContext(List<MemberBootstrap.Query<?>> queries, Duration elapsed) {
+        final var collected = new IdentityHashMap<MemberBootstrap.Query<?>, Object>();
+        queries.forEach(query -> {
+            final var value = query.value();
+            if(value != null)
+                collected.put(query, value);
+        });
+        this.values = Collections.unmodifiableMap(collected);
+        this.outcomes = queries.stream().map(MemberBootstrap.Query::outcome).toList();
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the query's response, or null if it failed or timed out
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(MemberBootstrap.Query<T> query) {
+        return (T) values.get(query);
+    }
+
+    /**
+     * @return one outcome per query, in the order the queries were added
+     */
+    public List<MemberBootstrap.Outcome> outcomes() {
+        return outcomes;
+    }
+
+    public boolean isComplete() {
+        return outcomes.stream().allMatch(outcome -> outcome.status() == MemberBootstrap.Status.OK);
+    }
+
+    /**
+     * @return wall clock time from start until the last query settled
+     */
+    public Duration elapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        final var builder = new StringBuilder("MemberContext{elapsed=").append(elapsed.toMillis()).append("ms");
+        outcomes.forEach(outcome -> builder.append(", ")
+                .append(outcome.name()).append('=')
+                .append(outcome.status()).append(' ')
+                .append(outcome.latency().toMillis()).append("ms"));
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,230 @@
+package com.ziqni.member;
+
+import com.ziqni.member.sdk.ZiqniMemberApiFactory;
+import com.ziqni.member.sdk.configuration.MemberApiClientConfigBuilder;
+import com.ziqni.metrics.Gauge;
+import com.ziqni.metrics.Metrics;
+import com.ziqni.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * Owns one streaming member API connection per member. Sessions connect lazily on first use with the member's
+ * own token, are closed after sitting idle, and the number of open sockets is capped: when the cap is reached the
+ * least recently used session is closed to make room.
+ * <p>
+ * Token fetches, connects and eviction run on executors shared by all sessions rather than per session threads.
+ * The SDK's own socket threads are still created per factory.
+ */
+public class MemberSessionManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemberSessionManager.class);
+
+    private final String apiKey;
+    private final MemberTokenCache tokenCache;
+    private final Duration idleTimeout;
+    private final Duration connectTimeout;
+    private final BiFunction<String, String, CompletableFuture<MemberSession>> connector;
+    private final Semaphore sockets;
+    private final ConcurrentHashMap<String, CompletableFuture<MemberSession>> sessions = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService evictor;
+    private final MetricsRegistry metrics = Metrics.registry();
+    private final Gauge sessionsGauge;
+
+    public MemberSessionManager(String apiKey, MemberTokenCache tokenCache, int maxSessions, Duration idleTimeout, Duration connectTimeout) {
+        this(apiKey, tokenCache, maxSessions, idleTimeout, connectTimeout, null);
+    }
+
+    /**
+     * @param connector opens a member's connection given its memberRefId and token, null for the streaming member API
+     */
+    MemberSessionManager(String apiKey, MemberTokenCache tokenCache, int maxSessions, Duration idleTimeout, Duration connectTimeout,
+                         BiFunction<String, String, CompletableFuture<MemberSession>> connector) {
+        this.apiKey = apiKey;
+        this.tokenCache = tokenCache;
+        this.idleTimeout = idleTimeout;
+        this.connectTimeout = connectTimeout;
+        this.connector = connector != null ? connector : this::connectStreaming;
+        this.sockets = new Semaphore(maxSessions);
+        this.sessionsGauge = metrics.gauge("ziqni_member_sessions", "Member sessions open or connecting", sessions::size);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "member-session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final var sweep = Math.max(1, idleTimeout.toMillis() / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, sweep, sweep, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the member's connected session, connecting it first if needed
+     */
+    public CompletableFuture<MemberSession> session(String memberRefId) {
+        final var created = new AtomicReference<CompletableFuture<MemberSession>>();
+        final var session = sessions.computeIfAbsent(memberRefId, ref -> {
+            final var connecting = connect(ref);
+            created.set(connecting);
+            return connecting;
+        });
+
+        // Attached once the future is in the map, a connect that already failed would otherwise stay cached
+        if(session == created.get()) {
+            return session
+                    .whenComplete((connected, throwable) -> {
+                        if(throwable != null)
+                            sessions.remove(memberRefId, session);
+                    })
+                    .thenApply(MemberSession::touch);
+        }
+        return session.thenApply(MemberSession::touch);
+    }
+
+    public void close(String memberRefId) {
+        final var session = sessions.remove(memberRefId);
+        if(session != null)
+            session.thenAccept(this::disconnect);
+    }
+
+    public int openSessions() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        sessions.keySet().forEach(this::close);
+        executor.shutdown();
+        metrics.remove(sessionsGauge);
+    }
+
+    private CompletableFuture<MemberSession> connect(String memberRefId) {
+        final var acquired = new AtomicBoolean(false);
+
+        final var connecting = CompletableFuture.supplyAsync(() -> {
+                    acquireSocket();
+                    acquired.set(true);
+                    return memberRefId;
+                }, executor)
+                .thenCompose(ref -> tokenCache.getToken(ref, apiKey))
+                .thenCompose(token -> connector.apply(memberRefId, token.getData().getJwtToken()));
+
+        // The socket is given back before anyone waiting on the session hears of the failure
+        return connecting.whenComplete((session, throwable) -> {
+            if(throwable != null) {
+                logger.error("Failed to connect session for member [{}]", memberRefId, throwable);
+                if(acquired.get())
+                    sockets.release();
+            }
+        });
+    }
+
+    private CompletableFuture<MemberSession> connectStreaming(String memberRefId, String jwtToken) {
+        final var configuration = MemberApiClientConfigBuilder.build();
+        configuration.setIdentityAuthorizationToken(jwtToken);
+
+        final var factory = new ZiqniMemberApiFactory(configuration);
+        final Runnable stop = () -> {
+            if(factory.getStreamingClient() != null)
+                factory.getStreamingClient().stop();
+        };
+        return MemberStreamingReadiness.connect(factory, connectTimeout)
+                .whenComplete((ready, throwable) -> {
+                    if(throwable != null)
+                        stop.run();
+                })
+                .thenApply(ready -> new MemberSession(memberRefId, factory, stop));
+    }
+
+    private void acquireSocket() {
+        while (!sockets.tryAcquire()) {
+            if(!evictLeastRecentlyUsed()) {
+                // Everything is still connecting, wait for a slot
+                try {
+                    if(sockets.tryAcquire(connectTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                        return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Member session limit reached");
+            }
+        }
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        final var eldest = sessions.entrySet().stream()
+                .filter(entry -> entry.getValue().isDone() && !entry.getValue().isCompletedExceptionally())
+                .min(Comparator.comparingLong(entry -> entry.getValue().join().lastUsedNanos()));
+
+        eldest.ifPresent(entry -> {
+            if(sessions.remove(entry.getKey(), entry.getValue()))
+                disconnect(entry.getValue().join());
+        });
+        return eldest.isPresent();
+    }
+
+    private void evictIdle() {
+        final var cutoff = System.nanoTime() - idleTimeout.toNanos();
+        sessions.forEach((memberRefId, future) -> {
+            if(future.isDone() && !future.isCompletedExceptionally() && future.join().lastUsedNanos() - cutoff < 0) {
+                if(sessions.remove(memberRefId, future)) {
+                    logger.info("Closing idle session for member [{}]", memberRefId);
+                    disconnect(future.join());
+                }
+            }
+        });
+    }
+
+    private void disconnect(MemberSession session) {
+        try {
+            session.stop.run();
+        } catch (Exception e) {
+            logger.warn("Failed to stop streaming client for member [{}]", session.memberRefId(), e);
+        } finally {
+            sockets.release();
+        }
+    }
+
+    public static final class MemberSession {
+        private final String memberRefId;
+        private final ZiqniMemberApiFactory factory;
+        private final Runnable stop;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        MemberSession(String memberRefId, ZiqniMemberApiFactory factory, Runnable stop) {
+            this.memberRefId = memberRefId;
+            this.factory = factory;
+            this.stop = stop;
+        }
+
+        public String memberRefId() {
+            return memberRefId;
+        }
+
+        public ZiqniMemberApiFactory factory() {
+            return factory;
+        }
+
+        public long lastUsedNanos() {
+            return lastUsedNanos;
+        }
+
+        private MemberSession touch() {
+            lastUsedNanos = System.nanoTime();
+            return this;
+        }
+    }
+}
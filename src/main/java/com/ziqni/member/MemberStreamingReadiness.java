@@ -0,0 +1,53 @@
+package com.ziqni.member;
+
+import com.google.common.eventbus.Subscribe;
+import com.ziqni.member.sdk.ZiqniMemberApiFactory;
+import com.ziqni.member.sdk.context.WSClientConnected;
+import com.ziqni.member.sdk.context.WSClientSevereFailure;
+import com.ziqni.util.StreamingReadiness;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Event driven replacement for polling getStreamingClient() and isConnected() with Thread.sleep.
+ */
+public class MemberStreamingReadiness extends StreamingReadiness {
+
+    /**
+     * Initialises the factory, starts its streaming client and completes once the client is connected.
+     */
+    public static CompletableFuture<Void> connect(ZiqniMemberApiFactory ziqniMemberApiFactory, Duration timeout) {
+        final var readiness = new MemberStreamingReadiness();
+
+        ziqniMemberApiFactory.initialise(() -> {
+                    ziqniMemberApiFactory.getZiqniAdminEventBus().register(readiness);
+                    try {
+                        return ziqniMemberApiFactory.getStreamingClient().start();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+                .whenComplete((started, throwable) -> {
+                    if(throwable != null)
+                        readiness.failed(throwable);
+                    else if(started == null || !started)
+                        readiness.failed("NOT_STARTED");
+                    else if(ziqniMemberApiFactory.getStreamingClient().isConnected())
+                        readiness.connected(); // Connected before the event reached us
+                });
+
+        return readiness.ready(timeout, ziqniMemberApiFactory::getZiqniAdminEventBus);
+    }
+
+    @Subscribe
+    public void onWSClientConnected(WSClientConnected change) {
+        if(change.getConnectedHeaders() != null)
+            connected();
+    }
+
+    @Subscribe
+    public void onWSClientSevereFailure(WSClientSevereFailure change) {
+        failed(change);
+    }
+}
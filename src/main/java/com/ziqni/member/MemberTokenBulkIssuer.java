@@ -0,0 +1,150 @@
+package com.ziqni.member;
+
+import com.ziqni.member.models.MemberTokenRequest;
+import com.ziqni.member.models.MemberTokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Issues tokens for many members from one request template, with a cap on requests in flight and an
+ * optional rate limit. Results are handed to the listener as they complete, failures included.
+ */
+public class MemberTokenBulkIssuer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemberTokenBulkIssuer.class);
+
+    private final Function<MemberTokenRequest, CompletableFuture<MemberTokenResponse>> loader;
+    private final int maxInFlight;
+    private final double requestsPerSecond;
+
+    public MemberTokenBulkIssuer(int maxInFlight, double requestsPerSecond) {
+        this(maxInFlight, requestsPerSecond, MemberAccessTokenService::getTokenAsync);
+    }
+
+    /**
+     * @param requestsPerSecond zero or less disables rate limiting
+     * @param loader e.g. {@link MemberTokenCache#getToken(MemberTokenRequest)} to reuse cached tokens
+     */
+    public MemberTokenBulkIssuer(int maxInFlight, double requestsPerSecond, Function<MemberTokenRequest, CompletableFuture<MemberTokenResponse>> loader) {
+        if(maxInFlight < 1)
+            throw new IllegalArgumentException("maxInFlight must be positive");
+
+        this.loader = loader;
+        this.maxInFlight = maxInFlight;
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public CompletableFuture<Summary> issue(Collection<String> memberRefIds, MemberTokenRequest template, Consumer<Result> listener) {
+        final var members = List.copyOf(memberRefIds);
+        final var summary = new CompletableFuture<Summary>();
+
+        if(members.isEmpty()) {
+            summary.complete(new Summary(0, 0, 0));
+            return summary;
+        }
+
+        Thread.ofVirtual().name("member-token-bulk").start(() -> dispatch(members, template, listener, summary));
+        return summary;
+    }
+
+    public CompletableFuture<List<Result>> issueAll(Collection<String> memberRefIds, MemberTokenRequest template) {
+        final var results = new ArrayList<Result>(memberRefIds.size());
+        return issue(memberRefIds, template, result -> {
+            synchronized (results) {
+                results.add(result);
+            }
+        }).thenApply(summary -> results);
+    }
+
+    private void dispatch(List<String> members, MemberTokenRequest template, Consumer<Result> listener, CompletableFuture<Summary> summary) {
+        final var permits = new Semaphore(maxInFlight);
+        final var remaining = new AtomicInteger(members.size());
+        final var failed = new AtomicInteger();
+        final var startNanos = System.nanoTime();
+        final var intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0L;
+        var nextSlotNanos = startNanos;
+
+        for (String memberRefId : members) {
+            permits.acquireUninterruptibly();
+
+            if(intervalNanos > 0) {
+                // parkNanos may return early, spurious wake-ups included, so park until the slot is reached
+                long wait;
+                while ((wait = nextSlotNanos - System.nanoTime()) > 0)
+                    LockSupport.parkNanos(wait);
+                nextSlotNanos = Math.max(nextSlotNanos, System.nanoTime() - intervalNanos) + intervalNanos;
+            }
+
+            CompletableFuture<MemberTokenResponse> request;
+            try {
+                request = loader.apply(fromTemplate(template, memberRefId));
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+
+            request.whenComplete((response, throwable) -> {
+                permits.release();
+
+                final var result = toResult(memberRefId, response, throwable);
+                if(!result.isSuccess())
+                    failed.incrementAndGet();
+
+                try {
+                    listener.accept(result);
+                } catch (RuntimeException e) {
+                    logger.error("Bulk token listener failed for member [{}]", memberRefId, e);
+                }
+
+                if(remaining.decrementAndGet() == 0)
+                    summary.complete(new Summary(members.size(), failed.get(), System.nanoTime() - startNanos));
+            });
+        }
+    }
+
+    private static Result toResult(String memberRefId, MemberTokenResponse response, Throwable throwable) {
+        if(throwable != null)
+            return new Result(memberRefId, null, throwable);
+
+        if(response == null || response.getData() == null)
+            return new Result(memberRefId, response, new IllegalStateException(response == null ? "No response" : String.valueOf(response.getErrors())));
+
+        return new Result(memberRefId, response, null);
+    }
+
+    static MemberTokenRequest fromTemplate(MemberTokenRequest template, String memberRefId) {
+        return new MemberTokenRequest()
+                .apiKey(template.getApiKey())
+                .member(memberRefId)
+                .isReferenceId(true)
+                .origins(template.getOrigins())
+                .disabledServices(template.getDisabledServices())
+                .currencyKey(template.getCurrencyKey())
+                .languageKey(template.getLanguageKey())
+                .timeZoneOffset(template.getTimeZoneOffset())
+                .includeActivesByEntity(template.getIncludeActivesByEntity())
+                .expires(template.getExpires());
+    }
+
+    public record Result(String memberRefId, MemberTokenResponse response, Throwable error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    public record Summary(int requested, int failed, long elapsedNanos) {
+        public int succeeded() {
+            return requested - failed;
+        }
+    }
+}
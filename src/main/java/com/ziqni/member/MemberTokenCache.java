@@ -0,0 +1,232 @@
+package com.ziqni.member;
+
+import com.ziqni.member.models.MemberTokenRequest;
+import com.ziqni.member.models.MemberTokenResponse;
+import com.ziqni.member.sdk.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches member tokens per (apiKey, memberRefId, currencyKey, languageKey) and refreshes them in the
+ * background before the JWT expires. Concurrent requests for the same member share one HTTP call.
+ */
+public class MemberTokenCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemberTokenCache.class);
+
+    private static final long REFRESH_RETRY_MILLIS = 5_000;
+
+    private final Function<MemberTokenRequest, CompletableFuture<MemberTokenResponse>> loader;
+    private final int maximumSize;
+    private final long refreshAheadMillis;
+    private final ScheduledExecutorService scheduler;
+
+    // Access ordered, so the eldest entry is always the least recently used one
+    private final LinkedHashMap<Key, Slot> slots;
+
+    public MemberTokenCache(int maximumSize, Duration refreshAhead) {
+        this(maximumSize, refreshAhead, MemberAccessTokenService::getTokenAsync);
+    }
+
+    public MemberTokenCache(int maximumSize, Duration refreshAhead, Function<MemberTokenRequest, CompletableFuture<MemberTokenResponse>> loader) {
+        if(maximumSize < 1)
+            throw new IllegalArgumentException("maximumSize must be positive");
+
+        this.loader = loader;
+        this.maximumSize = maximumSize;
+        this.refreshAheadMillis = refreshAhead.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "member-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Slot> eldest) {
+                if(size() > MemberTokenCache.this.maximumSize) {
+                    eldest.getValue().cancelRefresh();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CompletableFuture<MemberTokenResponse> getToken(String memberRefId, String apiKey) {
+        return getToken(MemberAccessTokenService.defaultTokenRequest(memberRefId, apiKey));
+    }
+
+    public CompletableFuture<MemberTokenResponse> getToken(MemberTokenRequest request) {
+        final var key = Key.of(request);
+        final Slot slot;
+
+        synchronized (slots) {
+            final var existing = slots.get(key);
+            if(existing != null && existing.isUsable(System.currentTimeMillis())) {
+                existing.accessed = true;
+                return existing.current;
+            }
+            if(existing != null)
+                existing.cancelRefresh();
+
+            slot = new Slot(new CompletableFuture<>());
+            slots.put(key, slot);
+        }
+
+        load(key, request, slot, slot.current);
+        return slot.current;
+    }
+
+    public void invalidate(MemberTokenRequest request) {
+        synchronized (slots) {
+            final var removed = slots.remove(Key.of(request));
+            if(removed != null)
+                removed.cancelRefresh();
+        }
+    }
+
+    public int size() {
+        synchronized (slots) {
+            return slots.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        synchronized (slots) {
+            slots.clear();
+        }
+    }
+
+    private void load(Key key, MemberTokenRequest request, Slot slot, CompletableFuture<MemberTokenResponse> target) {
+        loader.apply(request).whenComplete((response, throwable) -> {
+            if(throwable == null && (response == null || response.getData() == null || response.getData().getJwtToken() == null))
+                throwable = new IllegalStateException("No token issued for member " + key.memberRefId() + ": " + (response == null ? "no response" : response.getErrors()));
+
+            if(throwable != null) {
+                remove(key, slot);
+                target.completeExceptionally(throwable);
+                return;
+            }
+
+            slot.expiresAtMillis = expiresAt(response.getData().getJwtToken(), request.getExpires());
+            target.complete(response);
+            scheduleRefresh(key, request, slot);
+        });
+    }
+
+    private void scheduleRefresh(Key key, MemberTokenRequest request, Slot slot) {
+        final var delay = Math.max(0, slot.expiresAtMillis - refreshAheadMillis - System.currentTimeMillis());
+        slot.accessed = false;
+        try {
+            slot.refreshTask = scheduler.schedule(() -> refresh(key, request, slot), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Cache closed, the token will simply expire
+        }
+    }
+
+    private void refresh(Key key, MemberTokenRequest request, Slot slot) {
+        synchronized (slots) {
+            if(slots.get(key) != slot)
+                return;
+
+            // Let tokens nobody asked for since the last refresh lapse rather than keep minting them
+            if(!slot.accessed) {
+                slots.remove(key);
+                return;
+            }
+        }
+
+        loader.apply(request).whenComplete((response, throwable) -> {
+            if(throwable != null || response == null || response.getData() == null || response.getData().getJwtToken() == null) {
+                logger.warn("Failed to refresh token for member [{}]", key.memberRefId(), throwable);
+                if(System.currentTimeMillis() + REFRESH_RETRY_MILLIS < slot.expiresAtMillis) {
+                    try {
+                        slot.refreshTask = scheduler.schedule(() -> refresh(key, request, slot), REFRESH_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // Cache closed
+                    }
+                }
+                return;
+            }
+
+            slot.expiresAtMillis = expiresAt(response.getData().getJwtToken(), request.getExpires());
+            slot.current = CompletableFuture.completedFuture(response);
+            scheduleRefresh(key, request, slot);
+        });
+    }
+
+    private void remove(Key key, Slot slot) {
+        synchronized (slots) {
+            if(slots.get(key) == slot)
+                slots.remove(key);
+        }
+    }
+
+    /**
+     * Reads the exp claim from the JWT payload, falling back to the requested lifetime if the claim is missing.
+     */
+    static long expiresAt(String jwtToken, Integer requestedExpiresSeconds) {
+        final var fallback = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(requestedExpiresSeconds == null ? 3600 : requestedExpiresSeconds);
+        final var parts = jwtToken.split("\\.");
+        if(parts.length < 2)
+            return fallback;
+
+        try {
+            final var claims = JSON.getDefault().getMapper().readTree(Base64.getUrlDecoder().decode(parts[1]));
+            final var exp = claims.path("exp");
+            return exp.canConvertToLong() ? TimeUnit.SECONDS.toMillis(exp.asLong()) : fallback;
+        } catch (Exception e) {
+            logger.warn("Unable to decode token expiry, using requested lifetime", e);
+            return fallback;
+        }
+    }
+
+    record Key(String apiKey, String memberRefId, String currencyKey, String languageKey) {
+        static Key of(MemberTokenRequest request) {
+            return new Key(
+                    Objects.requireNonNull(request.getApiKey(), "apiKey"),
+                    Objects.requireNonNull(request.getMember(), "member"),
+                    request.getCurrencyKey(),
+                    request.getLanguageKey()
+            );
+        }
+    }
+
+    private static final class Slot {
+        private volatile CompletableFuture<MemberTokenResponse> current;
+        private volatile long expiresAtMillis = Long.MAX_VALUE;
+        private volatile boolean accessed = true;
+        private volatile ScheduledFuture<?> refreshTask;
+
+        private Slot(CompletableFuture<MemberTokenResponse> current) {
+            this.current = current;
+        }
+
+        private boolean isUsable(long now) {
+            if(!current.isDone())
+                return true; // Single flight, join the pending request
+            return !current.isCompletedExceptionally() && now < expiresAtMillis;
+        }
+
+        private void cancelRefresh() {
+            final var task = refreshTask;
+            if(task != null)
+                task.cancel(false);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.ziqni.member;
 
 import com.google.common.eventbus.Subscribe;
+import com.ziqni.member.leaderboard.LeaderboardDiffEngine;
+import com.ziqni.member.leaderboard.LeaderboardMultiplexer;
 import com.ziqni.member.sdk.SampleApp;
 import com.ziqni.member.sdk.ZiqniMemberApiFactory;
 import com.ziqni.member.sdk.configuration.MemberApiClientConfigBuilder;
@@ -9,29 +11,51 @@ import com.ziqni.member.sdk.context.WSClientConnecting;
 import com.ziqni.member.sdk.context.WSClientDisconnected;
 import com.ziqni.member.sdk.context.WSClientSevereFailure;
 import com.ziqni.member.sdk.model.*;
+import com.ziqni.metrics.Counter;
+import com.ziqni.metrics.Histogram;
+import com.ziqni.metrics.Metrics;
+import com.ziqni.util.CallbackDispatcher;
+import com.ziqni.util.CallbackLog;
 import com.ziqni.util.GlobalExceptionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class ZiqniMemberSample {
+public class ZiqniMemberSample implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(ZiqniMemberSample.class);
 
     private static ZiqniMemberApiFactory ziqniMemberApiFactory;
-    private static Map<String, Map<Integer, Double>> prevScores = new HashMap<>();
+    private static final LeaderboardDiffEngine leaderboards = new LeaderboardDiffEngine();
+    private LeaderboardMultiplexer leaderboardMultiplexer;
+    private final Set<String> subscribedContests = ConcurrentHashMap.newKeySet();
+    private volatile MemberContext memberContext;
+    private CompetitionCatalogueLoader catalogueLoader;
+    private final CallbackDispatcher callbackDispatcher = new CallbackDispatcher(Duration.ofMillis(50));
+    // Models are encoded and written off the handler threads, the chattiest callbacks only in part
+    private final CallbackLog callbackLog = CallbackLog.builder(logger)
+            .sample("entityChanged", 100)
+            .sample("leaderboardUpdate", 100)
+            .build();
     private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
 
+    private final AtomicBoolean firstConnection = new AtomicBoolean(true);
+    private final Counter reconnects = Metrics.registry().counter("ziqni_ws_reconnects_total", "Streaming client reconnections", "client", "member");
+    private final Counter disconnects = Metrics.registry().counter("ziqni_ws_disconnects_total", "Streaming client disconnections", "client", "member");
+    private final Histogram leaderboardLag = Metrics.registry().timer("ziqni_leaderboard_update_lag_seconds", "Server timestamp of a leaderboard update to its handler");
+
     public ZiqniMemberSample(String apiKey, String spaceName, String memberReferenceId) throws Exception {
         logger.info("Running Member Sample...");
+        // The sample runs until the JVM exits, queued callbacks and their log lines are written out on the way down
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("member-sample-shutdown").unstarted(this::close));
 
         final var memberAccessToken = MemberAccessTokenService.getToken(memberReferenceId, apiKey);
 
@@ -42,22 +66,10 @@ public class ZiqniMemberSample {
 
         ziqniMemberApiFactory = new ZiqniMemberApiFactory(configuration);
 
-        logger.info("+++ Member API connected");
         Thread.setDefaultUncaughtExceptionHandler(new GlobalExceptionHandler());
-        ziqniMemberApiFactory.initialise();
 
-
-        while (ziqniMemberApiFactory.getStreamingClient() == null) {
-            Thread.sleep(500);
-            logger.info("+++ Initializing the streaming member api client");
-        }
-
-        final AtomicInteger counter = new AtomicInteger(0);
-        final var started = ziqniMemberApiFactory.getStreamingClient().start();
-        while (!ziqniMemberApiFactory.getStreamingClient().isConnected()) {
-            Thread.sleep(500);
-            logger.info("+++ Waiting for the streaming client to start [{}]",counter.incrementAndGet());
-        }
+        // Completes on the WSClientConnected signal rather than polling for the client and its connection
+        MemberStreamingReadiness.connect(ziqniMemberApiFactory, Duration.ofSeconds(30)).join();
 
         logger.info("+++ Started the streaming client");
 
@@ -72,25 +84,12 @@ public class ZiqniMemberSample {
 
         ziqniMemberApiFactory.getCallbacksApi().leaderboardUpdateHandler(
                 (stompHeaders, leaderboard) -> {
-                    logger.info("Leaderboard {} - ", leaderboard.getId());
-                    prevScores.putIfAbsent(leaderboard.getId(), new HashMap<>());
-                    final Map<Integer, Double> map = prevScores.get(leaderboard.getId());
-
-                    if(!Objects.requireNonNull(leaderboard.getLeaderboardEntries()).isEmpty()){
-                        leaderboard.getLeaderboardEntries().stream()
-                                .sorted(Comparator.comparing(LeaderboardEntry::getRank))
-                                .forEach(leaderboardEntry -> {
-                                    final var changed = !Objects.equals(map.getOrDefault(leaderboardEntry.getRank(), 0.0), leaderboardEntry.getScore())
-                                            ? " *" : "";
-                                    logger.info("-{} {}- {} {}", leaderboardEntry.getRank(), leaderboardEntry.getScore(), leaderboardEntry.getMembers().stream().map(LeaderboardMember::getName).collect(Collectors.toList()), changed);
-                                })
-                        ;
-
-                        map.clear();
-                        leaderboard.getLeaderboardEntries().forEach(leaderboardEntry -> {
-                            map.put(leaderboardEntry.getRank(), leaderboardEntry.getScore());
-                        });
-                    }
+                    // Only what moved since the previous update is reported
+                    final var delta = leaderboards.update(leaderboard);
+                    logger.info("Leaderboard {} - {} changes", leaderboard.getId(), delta.changes().size());
+                    delta.changes().forEach(change ->
+                            logger.info("-{} {}- {} {}", change.rank(), change.score(), change.participant(), change.kind())
+                    );
                 },
                 (stompHeaders, e) -> {}
         );
@@ -112,12 +111,23 @@ public class ZiqniMemberSample {
                 });
     }
 
+    /**
+     * Lets the callbacks already queued run, then writes out the log lines they queued.
+     */
+    @Override
+    public void close() {
+        callbackDispatcher.close();
+        callbackLog.close();
+    }
+
     //////// ADMIN API CLIENT EVENTBUS ////////
     @Subscribe
     public void onWSClientConnected(WSClientConnected change) {
         if(change.getConnectedHeaders() == null)
             return;
         logger.info("WSClientConnected {}", change);
+        if(!firstConnection.compareAndSet(true, false))
+            reconnects.increment();
         this.onStart();
     }
 
@@ -129,6 +139,7 @@ public class ZiqniMemberSample {
     @Subscribe
     public void onWSClientDisconnected(WSClientDisconnected change){
         logger.info("WSClientDisconnected {}", change);
+        disconnects.increment();
     }
 
     @Subscribe
@@ -146,7 +157,7 @@ public class ZiqniMemberSample {
             });
         }
 
-        System.out.println(achievementResponse);
+        callbackLog.info("achievements", achievementResponse);
     }
 
     private void handleResponse(CompetitionResponse competitionResponse){
@@ -162,42 +173,20 @@ public class ZiqniMemberSample {
             });
         }
 
-        System.out.println(competitionResponse);
+        callbackLog.info("competitions", competitionResponse);
 
-        competitionResponse.getData().stream().findFirst().ifPresent(this::getContests);
-    }
-
-    private void getContests(Competition competition){
-        ziqniMemberApiFactory.getContestsApi().getContests(new ContestRequest().contestFilter(new ContestFilter()/*.competitionIds(List.of("V-UJyIcB2XLhi587MUz1"))*/))
-                .thenAccept(contestResponse -> {
-                    logger.info(contestResponse.getData().toString());
-                    contestResponse.getData().stream().findFirst().ifPresent(contest -> {
-                        this.getRewards(contest);
-                        this.subscribeToLeaderboard(contest);
-                    });
-                }).exceptionally(throwable -> {
-                    logger.error("Failed to get contests for competition {}", competition, throwable);
-                    return null;
-                });
-    }
+        if(competitionResponse.getData() == null)
+            return;
 
-    private void getRewards(Contest contest) {
-        ziqniMemberApiFactory.getRewardsApi().getRewards(new RewardRequest()
-                        //.addSortByItem(new QuerySortBy().queryField("created").order(SortOrder.ASC))
-                        .skip(0)
-                        .limit(10)
-                        .currencyKey("GBP")
-                        .addEntityFilterItem(
-                                new EntityFilter()
-                                        .addEntityIdsItem(contest.getId())
-                                        .entityType(contest.getClass().getSimpleName())
-                        )
-                )
-                .thenAccept(rewardResponse ->
-                        logger.info(rewardResponse.getData().toString())
-                )
+        // Contests and rewards for every competition in a few batched requests, leaderboards as contests arrive
+        catalogueLoader.load(competitionResponse.getData(), this::subscribeToLeaderboard)
+                .thenAccept(catalogue -> logger.info("Loaded {} competitions, {} contests and {} rewarded contests in {} requests",
+                        catalogue.competitions().size(),
+                        catalogue.contestsByCompetition().values().stream().mapToInt(List::size).sum(),
+                        catalogue.rewardsByContest().size(),
+                        catalogue.roundTrips()))
                 .exceptionally(throwable -> {
-                    logger.error("Failed to get rerwards for contest {}", contest, throwable);
+                    logger.error("Failed to load the competition catalogue", throwable);
                     return null;
                 });
     }
@@ -209,7 +198,7 @@ public class ZiqniMemberSample {
                         .awardFilter(new AwardFilter().skip(0).limit(10))
                 )
                 .thenAccept(awardResponse ->
-                        logger.info(awardResponse.getData().toString())
+                        callbackLog.info("awards", awardResponse.getData())
                 )
                 .exceptionally(throwable -> {
                     logger.error("Failed to get awards for contest ", throwable);
@@ -218,20 +207,27 @@ public class ZiqniMemberSample {
     }
 
     private void subscribeToLeaderboard(Contest contest){
-        ziqniMemberApiFactory.getLeaderboardApi().subscribeToLeaderboard(new LeaderboardSubscriptionRequest()
-                .leaderboardFilter(new LeaderboardFilter()
+        // The catalogue is loaded again on every reconnect, the subscription is kept and resubscribed instead
+        if(!subscribedContests.add(contest.getId()))
+            return;
+
+        // Members watching the same contest with the same filter share one server subscription
+        leaderboardMultiplexer.subscribe(contest.getId(), new LeaderboardFilter()
                         .ranksBelowToInclude(5)
                         .ranksAboveToInclude(5)
-                        .topRanksToInclude(10)
-                )
-                .action(LeaderboardSubscriptionRequest.ActionEnum.SUBSCRIBE)
-                .entityId(contest.getId())
-        ).thenAccept(leaderboardsResponse -> {
-            logger.info(leaderboardsResponse.toString());
-        }).exceptionally(throwable -> {
-            logger.error("Failed to subscribe to entity changes for  {}", LeaderboardSubscriptionRequest.class.getSimpleName(), throwable);
+                        .topRanksToInclude(10),
+                leaderboard -> {
+                    final var delta = leaderboards.update(leaderboard);
+                    logger.info("Leaderboard {} - {} changes", leaderboard.getId(), delta.changes().size());
+                },
+                // Only the latest standings matter to the diff, skip any backlog
+                LeaderboardMultiplexer.Delivery.CONFLATED
+        ).subscribed().thenAccept(leaderboardsResponse ->
+                callbackLog.info("leaderboardSubscription", leaderboardsResponse)
+        ).exceptionally(throwable -> {
+            logger.error("Fail",throwable);
             return null;
-        });;
+        });
     }
 
     private void optIntoAchievement(Achievement achievement){
@@ -240,7 +236,7 @@ public class ZiqniMemberSample {
                 .entityId(achievement.getId())
                 .entityType(Achievement.class.getSimpleName())
         ).thenAccept(optInResponse -> {
-            logger.info(optInResponse.getData().toString());
+            callbackLog.info("optIn", optInResponse.getData());
         }).exceptionally(throwable -> {
             logger.error("{} Failed to opt-in to {} [{}]", Achievement.class.getSimpleName(), achievement.getId(), achievement.getName(), throwable);
             return null;
@@ -249,6 +245,12 @@ public class ZiqniMemberSample {
 
     private void onStart() {
 
+        // One multiplexer for the life of the sample, a reconnect restores its server side subscriptions
+        if(leaderboardMultiplexer == null)
+            leaderboardMultiplexer = new LeaderboardMultiplexer(ziqniMemberApiFactory);
+        else
+            logger.info("Resubscribed {} leaderboards", leaderboardMultiplexer.resubscribe());
+        catalogueLoader = CompetitionCatalogueLoader.forMemberApi(ziqniMemberApiFactory, "GBP");
         subscribeToCallbacks();
 
         if(!ziqniMemberApiFactory.getStreamingClient().isConnected()) {
@@ -257,76 +259,38 @@ public class ZiqniMemberSample {
             throw new RuntimeException("Not connected");
         }
 
-        ziqniMemberApiFactory.getCallbacksApi()
-                .listCallbacks()
-                .thenApply(response -> {
-                    logger.info(response.toString());
-                    return response;
-                })
-                .exceptionally(throwable -> {
-                    logger.error("Fail",throwable);
-                    return null;
-                });
+        // All bootstrap queries go out at once, dependent work starts as soon as its own query returns
+        final var bootstrap = new MemberBootstrap(Duration.ofSeconds(10));
 
-        ziqniMemberApiFactory.getMembersApi()
-                .getMember(new MemberRequest().addIncludeFieldsItem(Member.JSON_PROPERTY_MEMBER_REF_ID))
-                .thenApply(memberResponse -> {
-                    logger.info(memberResponse.toString());
-                    return memberResponse;
-                })
-                .exceptionally(throwable -> {
-                    logger.error("Fail",throwable);
-                    return null;
-                });
+        final var callbacks = bootstrap.query("callbacks", () -> ziqniMemberApiFactory.getCallbacksApi().listCallbacks());
+
+        final var member = bootstrap.query("member", () -> ziqniMemberApiFactory.getMembersApi()
+                .getMember(new MemberRequest().addIncludeFieldsItem(Member.JSON_PROPERTY_MEMBER_REF_ID)));
 
-        ziqniMemberApiFactory.getAwardsApi()
+        final var awards = bootstrap.query("awards", () -> ziqniMemberApiFactory.getAwardsApi()
                 .getAwards(new AwardRequest().currencyKey("GBP").awardFilter(
                                 new AwardFilter()
                                         .limit(5)
                                         .statusCode(new NumberRange().moreThan(16L).lessThan(60L))
                         )
-                )
-                .thenAccept(awardResponse ->
-                        logger.info(awardResponse.toString())
-                )
-                .exceptionally(throwable -> {
-                    logger.error("Fail",throwable);
-                    return null;
-                });
+                ));
 
-        ziqniMemberApiFactory.getAchievementsApi()
-                .getAchievements(new AchievementRequest().achievementFilter(new AchievementFilter().statusCode(new NumberRange().moreThan(20L).lessThan(30L))))
-                .thenAccept(this::handleResponse)
-                .exceptionally(throwable -> {
-                    logger.error("Fail",throwable);
-                    return null;
-                });
+        final var achievements = bootstrap.query("achievements", () -> ziqniMemberApiFactory.getAchievementsApi()
+                .getAchievements(new AchievementRequest().achievementFilter(new AchievementFilter().statusCode(new NumberRange().moreThan(20L).lessThan(30L)))));
 
-        ziqniMemberApiFactory.getCompetitionsApi()
+        final var competitions = bootstrap.query("competitions", () -> ziqniMemberApiFactory.getCompetitionsApi()
                 .getCompetitions(new CompetitionRequest()
                         .competitionFilter(new CompetitionFilter()
                                 .statusCode(new NumberRange().moreThan(20L).lessThan(30L))
                         ).languageKey("de")
-                )
-                .thenAccept(this::handleResponse)
-                .exceptionally(throwable -> {
-                    logger.error("Fail",throwable);
-                    return null;
-                });
+                ));
 
-        ziqniMemberApiFactory.getOptInApi()
+        final var optInStates = bootstrap.query("optInStates", () -> ziqniMemberApiFactory.getOptInApi()
                 .optInStates(new OptInStatesRequest().optinStatesFilter(
                         new OptinStatesFilter().addEntityTypesItem(EntityType.ACHIEVEMENT))
-                )
-                .thenAccept(response -> {
-                    logger.info(response.toString());
-                })
-                .exceptionally(throwable -> {
-                    logger.error("Fail",throwable);
-                    return null;
-                });
+                ));
 
-        ziqniMemberApiFactory.getGraphsApi()
+        final var graph = bootstrap.query("graph", () -> ziqniMemberApiFactory.getGraphsApi()
                 .getGraph(
                         new EntityGraphRequest()
                                 .entityType(EntityType.ACHIEVEMENT)
@@ -334,9 +298,31 @@ public class ZiqniMemberSample {
 //                                .addIdsItem("oLOWY4YBF0c3Crf1gj7J")
 //                                .addIncludesItem("description")
 //                                .addIncludesItem("scheduling")
-                )
-                .thenAccept(response -> {
-                    logger.info(response.toString());
+                ));
+
+        achievements.result().thenAccept(this::handleResponse)
+                .exceptionally(throwable -> {
+                    logger.error("Fail",throwable);
+                    return null;
+                });
+        competitions.result().thenAccept(this::handleResponse)
+                .exceptionally(throwable -> {
+                    logger.error("Fail",throwable);
+                    return null;
+                });
+
+        bootstrap.start()
+                .thenAccept(context -> {
+                    memberContext = context;
+                    logger.info("Bootstrap {}", context);
+                    callbackLog.info("member", context.get(member));
+                    callbackLog.info("callbacks", context.get(callbacks));
+                    callbackLog.info("awards", context.get(awards));
+                    callbackLog.info("optInStates", context.get(optInStates));
+                    callbackLog.info("graph", context.get(graph));
+                    context.outcomes().stream()
+                            .filter(outcome -> outcome.error() != null)
+                            .forEach(outcome -> logger.error("Bootstrap query {} {}", outcome.name(), outcome.status(), outcome.error()));
                 })
                 .exceptionally(throwable -> {
                     logger.error("Fail",throwable);
@@ -346,44 +332,48 @@ public class ZiqniMemberSample {
 
     private void subscribeToCallbacks(){
 
+        // Handlers run on virtual threads, in order per entity, instead of on the socket's receive thread
         ziqniMemberApiFactory.getCallbacksApi().entityChangedHandler(
-                ((stompHeaders, entityChanged) -> {
-                    logger.info(entityChanged.toString());
+                callbackDispatcher.dispatching("entityChanged", EntityChanged::getEntityId, (stompHeaders, entityChanged) -> {
+                    callbackLog.info("entityChanged", entityChanged);
                 }),
                 (stompHeaders, error) ->
-                        logger.info(error.toString())
+                        callbackLog.info("callbackError", error)
         );
 
         ziqniMemberApiFactory.getCallbacksApi().entityStateChangedHandler(
-                ((stompHeaders, entityStateChanged) ->{
-                    logger.info(entityStateChanged.toString());
+                callbackDispatcher.dispatching("entityStateChanged", EntityStateChanged::getEntityId, (stompHeaders, entityStateChanged) ->{
+                    callbackLog.info("entityStateChanged", entityStateChanged);
                 }),
                 (stompHeaders, error) ->
-                        logger.info(error.toString())
+                        callbackLog.info("callbackError", error)
         );
 
         ziqniMemberApiFactory.getCallbacksApi().optinStatusHandler(
-                ((stompHeaders, optinStatus) ->{
-                    logger.info(optinStatus.toString());
+                callbackDispatcher.dispatching("optinStatus", OptInStatus::getEntityId, (stompHeaders, optinStatus) ->{
+                    callbackLog.info("optinStatus", optinStatus);
                 }),
                 (stompHeaders, error) ->
-                        logger.info(error.toString())
+                        callbackLog.info("callbackError", error)
         );
 
+        // Notifications are standalone inbox messages that nothing orders against each other, so they run unordered
         ziqniMemberApiFactory.getCallbacksApi().notificationHandler(
-                ((stompHeaders, message) -> {
-                    logger.info(message.toString());
+                callbackDispatcher.dispatching("notification", message -> null, (stompHeaders, message) -> {
+                    callbackLog.info("notification", message);
                 }),
                 (stompHeaders, error) ->
-                        logger.info(error.toString())
+                        callbackLog.info("callbackError", error)
         );
 
         ziqniMemberApiFactory.getCallbacksApi().leaderboardUpdateHandler(
-                ((stompHeaders, message) -> {
-                    logger.info(message.toString());
+                callbackDispatcher.dispatching("leaderboardUpdate", Leaderboard::getId, (stompHeaders, message) -> {
+                    Metrics.recordLag(leaderboardLag, stompHeaders.getFirst("timestamp")); // Broker send time, epoch millis
+                    callbackLog.info("leaderboardUpdate", message);
+                    leaderboardMultiplexer.onLeaderboardUpdate(message);
                 }),
                 (stompHeaders, error) ->
-                        logger.info(error.toString())
+                        callbackLog.info("callbackError", error)
         );
     }
 }
@@ -0,0 +1,256 @@
+package com.ziqni.member.inbound;
+
+import com.ziqni.member.sdk.ZiqniMemberApiFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An optional inbound path for streaming messages: the socket's receive thread copies each message into a
+ * preallocated ring buffer and returns, consumer threads drain it in batches.
+ * <p>
+ * There is exactly one producer, the thread calling {@link #publish}. Every consumer sees every message in order
+ * and calls the handler registered for its type, looked up by ordinal, so there is no reflection and nothing is
+ * allocated per message. The producer waits for the slowest consumer when the ring is full.
+ * <p>
+ * Slots keep their last message until overwritten, so up to capacity messages stay reachable.
+ */
+public class InboundPipeline implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InboundPipeline.class);
+
+    @FunctionalInterface
+    public interface Handler<T> {
+        /**
+         * @param endOfBatch true for the last message available when the batch was read
+         */
+        void onMessage(T message, long sequence, boolean endOfBatch);
+    }
+
+    private static final class Slot {
+        private int type;
+        private Object message;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final Sequence cursor = new Sequence(-1);
+    private final WaitStrategy waitStrategy;
+    private final ConsumerLoop[] consumers;
+    private volatile boolean running = true;
+
+    // Producer confined
+    private long next = 0;
+    private long cachedGate = -1;
+
+    private InboundPipeline(Builder builder) {
+        this.slots = new Slot[builder.capacity];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = new Slot();
+        this.mask = builder.capacity - 1;
+        this.waitStrategy = builder.waitStrategy;
+        this.consumers = builder.consumers.toArray(new ConsumerLoop[0]);
+
+        for (ConsumerLoop consumer : consumers) {
+            consumer.pipeline = this;
+            final var thread = new Thread(consumer, "inbound-" + consumer.name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    /**
+     * Registers callback handlers that publish into this pipeline. They replace any handlers already registered.
+     */
+    public void bindCallbacks(ZiqniMemberApiFactory ziqniMemberApiFactory) {
+        final var callbacks = ziqniMemberApiFactory.getCallbacksApi();
+        callbacks.entityChangedHandler(
+                (stompHeaders, message) -> publish(InboundType.ENTITY_CHANGED, message),
+                (stompHeaders, error) -> logger.error(error.toString()));
+        callbacks.entityStateChangedHandler(
+                (stompHeaders, message) -> publish(InboundType.ENTITY_STATE_CHANGED, message),
+                (stompHeaders, error) -> logger.error(error.toString()));
+        callbacks.optinStatusHandler(
+                (stompHeaders, message) -> publish(InboundType.OPTIN_STATUS, message),
+                (stompHeaders, error) -> logger.error(error.toString()));
+        callbacks.notificationHandler(
+                (stompHeaders, message) -> publish(InboundType.NOTIFICATION, message),
+                (stompHeaders, error) -> logger.error(error.toString()));
+        callbacks.leaderboardUpdateHandler(
+                (stompHeaders, message) -> publish(InboundType.LEADERBOARD_UPDATE, message),
+                (stompHeaders, error) -> logger.error(error.toString()));
+    }
+
+    /**
+     * Publishes a message, waiting for a free slot if the ring is full. Must only be called from one thread.
+     *
+     * @return the message's sequence, or -1 if the pipeline was closed
+     */
+    public long publish(InboundType type, Object message) {
+        final var sequence = next;
+        final var wrapPoint = sequence - slots.length;
+        while (wrapPoint > cachedGate) {
+            cachedGate = slowestConsumer();
+            if(wrapPoint > cachedGate) {
+                if(!running)
+                    return -1;
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        write(sequence, type, message);
+        return sequence;
+    }
+
+    /**
+     * Publishes a message if a slot is free. Must only be called from the publishing thread.
+     *
+     * @return false if the ring is full or closed
+     */
+    public boolean tryPublish(InboundType type, Object message) {
+        final var sequence = next;
+        final var wrapPoint = sequence - slots.length;
+        if(wrapPoint > cachedGate) {
+            cachedGate = slowestConsumer();
+            if(wrapPoint > cachedGate)
+                return false;
+        }
+        if(!running)
+            return false;
+        write(sequence, type, message);
+        return true;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return messages published but not yet handled by the slowest consumer
+     */
+    public long backlog() {
+        return cursor.get() - slowestConsumer();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        waitStrategy.signal();
+    }
+
+    private void write(long sequence, InboundType type, Object message) {
+        final var slot = slots[(int) (sequence & mask)];
+        slot.type = type.ordinal();
+        slot.message = message;
+        next = sequence + 1;
+        // The ordered store publishes the slot writes above to the consumers
+        cursor.setRelease(sequence);
+        waitStrategy.signal();
+    }
+
+    private long slowestConsumer() {
+        var min = cursor.get();
+        for (ConsumerLoop consumer : consumers)
+            min = Math.min(min, consumer.sequence.get());
+        return min;
+    }
+
+    public static final class Builder {
+        private final int capacity;
+        private WaitStrategy waitStrategy = WaitStrategy.sleeping(100_000);
+        private final List<ConsumerLoop> consumers = new ArrayList<>();
+
+        private Builder(int capacity) {
+            if(capacity < 2 || Integer.bitCount(capacity) != 1)
+                throw new IllegalArgumentException("Capacity must be a power of two");
+            this.capacity = capacity;
+        }
+
+        public Builder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * Adds a consumer thread. Messages of types it has no handler for are skipped.
+         */
+        public ConsumerBuilder consumer(String name) {
+            return new ConsumerBuilder(this, name);
+        }
+
+        public InboundPipeline build() {
+            if(consumers.isEmpty())
+                throw new IllegalStateException("At least one consumer is required");
+            return new InboundPipeline(this);
+        }
+    }
+
+    public static final class ConsumerBuilder {
+        private final Builder builder;
+        private final String name;
+        private final Handler<?>[] handlers = new Handler<?>[InboundType.values().length];
+
+        private ConsumerBuilder(Builder builder, String name) {
+            this.builder = builder;
+            this.name = name;
+        }
+
+        public <T> ConsumerBuilder on(InboundType type, Handler<T> handler) {
+            handlers[type.ordinal()] = handler;
+            return this;
+        }
+
+        public Builder add() {
+            builder.consumers.add(new ConsumerLoop(name, handlers.clone()));
+            return builder;
+        }
+    }
+
+    private static final class ConsumerLoop implements Runnable {
+        private final String name;
+        private final Handler<Object>[] handlers;
+        private final Sequence sequence = new Sequence(-1);
+        private InboundPipeline pipeline;
+
+        @SuppressWarnings("unchecked")
+        private ConsumerLoop(String name, Handler<?>[] handlers) {
+            this.name = name;
+            this.handlers = (Handler<Object>[]) handlers;
+        }
+
+        @Override
+        public void run() {
+            final var pipeline = this.pipeline;
+            final var slots = pipeline.slots;
+            final var mask = pipeline.mask;
+            final BooleanSupplier running = () -> pipeline.running;
+
+            var processed = sequence.get();
+            while (pipeline.running) {
+                final var available = pipeline.waitStrategy.waitFor(processed + 1, pipeline.cursor, running);
+                for (long next = processed + 1; next <= available; next++) {
+                    final var slot = slots[(int) (next & mask)];
+                    final var handler = handlers[slot.type];
+                    if(handler == null)
+                        continue;
+                    try {
+                        handler.onMessage(slot.message, next, next == available);
+                    } catch (RuntimeException e) {
+                        logger.error("Inbound consumer [{}] failed on sequence {}", name, next, e);
+                    }
+                }
+                if(available > processed) {
+                    processed = available;
+                    sequence.setRelease(processed);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.ziqni.member.inbound;
+
+/**
+ * The inbound message types routed by {@link InboundPipeline}. Routing is by ordinal into a handler array.
+ */
+public enum InboundType {
+    ENTITY_CHANGED,
+    ENTITY_STATE_CHANGED,
+    OPTIN_STATUS,
+    NOTIFICATION,
+    LEADERBOARD_UPDATE
+}
@@ -0,0 +1,26 @@
+package com.ziqni.member.inbound;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A ring buffer position. The value sits in the middle of a 128 byte array so producer and consumer positions
+ * never share a cache line.
+ */
+public final class Sequence {
+
+    private static final int VALUE = 7;
+
+    private final AtomicLongArray padded = new AtomicLongArray(16);
+
+    Sequence(long initial) {
+        padded.set(VALUE, initial);
+    }
+
+    public long get() {
+        return padded.get(VALUE);
+    }
+
+    void setRelease(long value) {
+        padded.lazySet(VALUE, value);
+    }
+}
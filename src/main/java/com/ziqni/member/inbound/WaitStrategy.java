@@ -0,0 +1,112 @@
+package com.ziqni.member.inbound;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a consumer waits for the producer. The spinning strategies give the lowest handoff latency at the cost of a
+ * busy core per consumer; sleeping and blocking give it back when the socket is quiet.
+ */
+public interface WaitStrategy {
+
+    /**
+     * @return the highest published sequence, at least the requested one unless running turned false
+     */
+    long waitFor(long sequence, Sequence cursor, BooleanSupplier running);
+
+    /**
+     * Called by the producer after each publish.
+     */
+    default void signal() {
+    }
+
+    static WaitStrategy busySpin() {
+        return (sequence, cursor, running) -> {
+            long available;
+            while ((available = cursor.get()) < sequence && running.getAsBoolean())
+                Thread.onSpinWait();
+            return available;
+        };
+    }
+
+    static WaitStrategy yielding() {
+        return (sequence, cursor, running) -> {
+            long available;
+            int spins = 100;
+            while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+                if(spins > 0) {
+                    spins--;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        };
+    }
+
+    static WaitStrategy sleeping(long sleepNanos) {
+        return (sequence, cursor, running) -> {
+            long available;
+            int spins = 200;
+            while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+                if(spins > 100) {
+                    spins--;
+                    Thread.onSpinWait();
+                } else if(spins > 0) {
+                    spins--;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(sleepNanos);
+                }
+            }
+            return available;
+        };
+    }
+
+    static WaitStrategy blocking() {
+        return new Blocking();
+    }
+
+    final class Blocking implements WaitStrategy {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+
+        private Blocking() {
+        }
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier running) {
+            long available = cursor.get();
+            if(available >= sequence)
+                return available;
+
+            lock.lock();
+            try {
+                while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+                    // Bounded so a stop is noticed without a signal
+                    published.await(10, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+            return available;
+        }
+
+        @Override
+        public void signal() {
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.ziqni.member.leaderboard;
+
+import com.ziqni.member.sdk.model.Leaderboard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Delivers leaderboard updates to a possibly slow consumer without building a backlog. Each leaderboard id has a
+ * single slot holding its newest update; an update that arrives before the previous one was delivered replaces it
+ * and is counted as conflated. Delivery runs on the executor, one update at a time, so the calling socket thread
+ * never waits for the consumer.
+ */
+public class ConflatingListener implements Consumer<Leaderboard>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConflatingListener.class);
+
+    private final Consumer<Leaderboard> delegate;
+    private final Executor executor;
+    private final ConcurrentHashMap<String, AtomicReference<Leaderboard>> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean closed = false;
+
+    public ConflatingListener(Consumer<Leaderboard> delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void accept(Leaderboard leaderboard) {
+        if(closed) {
+            dropped.increment();
+            return;
+        }
+
+        final var slot = slots.computeIfAbsent(leaderboard.getId(), id -> new AtomicReference<>());
+        if(slot.getAndSet(leaderboard) == null)
+            pending.incrementAndGet();
+        else
+            conflated.increment();
+
+        scheduleDrain();
+    }
+
+    /**
+     * @return updates handed to the consumer
+     */
+    public long delivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return updates replaced by a newer one for the same leaderboard before they were delivered
+     */
+    public long conflated() {
+        return conflated.sum();
+    }
+
+    /**
+     * @return updates never delivered because the listener was closed or the consumer failed on them
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        slots.values().forEach(slot -> {
+            if(slot.getAndSet(null) != null) {
+                pending.decrementAndGet();
+                dropped.increment();
+            }
+        });
+    }
+
+    private void scheduleDrain() {
+        if(draining.compareAndSet(false, true))
+            executor.execute(this::drain);
+    }
+
+    private void drain() {
+        do {
+            for (AtomicReference<Leaderboard> slot : slots.values()) {
+                final var leaderboard = slot.getAndSet(null);
+                if(leaderboard == null)
+                    continue;
+
+                pending.decrementAndGet();
+                try {
+                    delegate.accept(leaderboard);
+                    delivered.increment();
+                } catch (RuntimeException e) {
+                    dropped.increment();
+                    logger.error("Leaderboard listener failed for [{}]", leaderboard.getId(), e);
+                }
+            }
+            draining.set(false);
+            // An update may have landed after its slot was visited but before the flag was cleared
+        } while (pending.get() > 0 && !closed && draining.compareAndSet(false, true));
+    }
+}
@@ -0,0 +1,29 @@
+package com.ziqni.member.leaderboard;
+
+import java.util.List;
+
+/**
+ * What changed on a leaderboard between two consecutive updates. Participants whose rank and score are unchanged
+ * are not included.
+ */
+public record LeaderboardDelta(String leaderboardId, List<Change> changes) {
+
+    public enum Kind {
+        NEW,
+        DROPPED,
+        MOVED_UP,
+        MOVED_DOWN,
+        /** Same rank, different score */
+        SCORE_CHANGED
+    }
+
+    /**
+     * Ranks are 0 and scores NaN on the side where the participant is absent, i.e. previous for NEW and current
+     * for DROPPED.
+     */
+    public record Change(Kind kind, String participant, int previousRank, int rank, double previousScore, double score) {}
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+}
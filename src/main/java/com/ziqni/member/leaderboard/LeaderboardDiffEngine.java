@@ -0,0 +1,194 @@
+package com.ziqni.member.leaderboard;
+
+import com.ziqni.member.sdk.model.Leaderboard;
+import com.ziqni.member.sdk.model.LeaderboardEntry;
+import com.ziqni.member.sdk.model.LeaderboardMember;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Keeps the last known rank and score of every participant per leaderboard and turns each leaderboard update into
+ * a {@link LeaderboardDelta}. Each leaderboard holds two primitive backed tables that are swapped and reused, so a
+ * steady state update allocates only the delta itself and needs no sorting.
+ * <p>
+ * Safe to call from any callback thread. Each leaderboard has its own lock, so updates to different leaderboards
+ * run in parallel and only updates to the same leaderboard are serialised. {@link #snapshot(String)} reads
+ * optimistically and does not block writers.
+ */
+public class LeaderboardDiffEngine {
+
+    private final Function<LeaderboardMember, String> participantKey;
+    private final ConcurrentHashMap<String, LeaderboardState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Participants are keyed by {@link #memberKey(LeaderboardMember)}.
+     */
+    public LeaderboardDiffEngine() {
+        this(LeaderboardDiffEngine::memberKey);
+    }
+
+    /**
+     * @param participantKey identifies a participant across updates, members it returns null for are skipped
+     */
+    public LeaderboardDiffEngine(Function<LeaderboardMember, String> participantKey) {
+        this.participantKey = participantKey;
+    }
+
+    public LeaderboardDelta update(Leaderboard leaderboard) {
+        return update(leaderboard.getId(), leaderboard.getLeaderboardEntries());
+    }
+
+    public LeaderboardDelta update(String leaderboardId, List<LeaderboardEntry> entries) {
+        return states.computeIfAbsent(leaderboardId, id -> new LeaderboardState(id, entries == null ? 16 : entries.size()))
+                .apply(entries, participantKey);
+    }
+
+    /**
+     * @return a consistent copy of the leaderboard's latest state, or null if no update was seen for it
+     */
+    public LeaderboardSnapshot snapshot(String leaderboardId) {
+        final var state = states.get(leaderboardId);
+        return state == null ? null : state.snapshot();
+    }
+
+    public void remove(String leaderboardId) {
+        states.remove(leaderboardId);
+    }
+
+    /**
+     * The member id, falling back to the memberRefId. Names are not unique, two members sharing one would be
+     * merged into a single participant.
+     *
+     * @return the key, or null if the member carries neither id
+     */
+    public static String memberKey(LeaderboardMember member) {
+        if(member.getMemberId() != null)
+            return member.getMemberId();
+        if(member.getMemberRefId() != null)
+            return "ref:" + member.getMemberRefId();
+        return null;
+    }
+
+    static final class LeaderboardState {
+        private final String leaderboardId;
+        private final StampedLock lock = new StampedLock();
+        private LeaderboardTable previous;
+        private LeaderboardTable current;
+        private long version = 0;
+
+        LeaderboardState(String leaderboardId, int expectedSize) {
+            this.leaderboardId = leaderboardId;
+            this.previous = new LeaderboardTable(expectedSize);
+            this.current = new LeaderboardTable(expectedSize);
+        }
+
+        LeaderboardDelta apply(List<LeaderboardEntry> entries, Function<LeaderboardMember, String> participantKey) {
+            final var stamp = lock.writeLock();
+            try {
+                return applyLocked(entries, participantKey);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        LeaderboardSnapshot snapshot() {
+            final var stamp = lock.tryOptimisticRead();
+            if(stamp != 0) {
+                try {
+                    final var snapshot = copyLatest();
+                    if(lock.validate(stamp))
+                        return snapshot;
+                } catch (RuntimeException e) {
+                    // Torn read while a writer resized the table, retry under the read lock
+                }
+            }
+
+            final var readStamp = lock.readLock();
+            try {
+                return copyLatest();
+            } finally {
+                lock.unlockRead(readStamp);
+            }
+        }
+
+        private LeaderboardSnapshot copyLatest() {
+            final var table = previous;
+            final var size = table.size();
+            final var participants = new String[size];
+            final var ranks = new int[size];
+            final var scores = new double[size];
+            for (int i = 0; i < size; i++) {
+                final var slot = table.slotAt(i);
+                participants[i] = table.keyAt(slot);
+                ranks[i] = table.rankAt(slot);
+                scores[i] = table.scoreAt(slot);
+            }
+            return new LeaderboardSnapshot(leaderboardId, version, participants, ranks, scores);
+        }
+
+        private LeaderboardDelta applyLocked(List<LeaderboardEntry> entries, Function<LeaderboardMember, String> participantKey) {
+            current.clear();
+            if(entries != null) {
+                for (LeaderboardEntry entry : entries) {
+                    if(entry.getMembers() == null)
+                        continue;
+                    final int rank = entry.getRank() == null ? 0 : entry.getRank();
+                    final double score = entry.getScore() == null ? 0.0 : entry.getScore();
+                    for (LeaderboardMember member : entry.getMembers()) {
+                        final var key = member == null ? null : participantKey.apply(member);
+                        if(key != null)
+                            current.put(key, rank, score);
+                    }
+                }
+            }
+
+            final var changes = diff(previous, current);
+
+            final var swap = previous;
+            previous = current;
+            current = swap;
+            version++;
+
+            return new LeaderboardDelta(leaderboardId, changes);
+        }
+    }
+
+    static List<LeaderboardDelta.Change> diff(LeaderboardTable previous, LeaderboardTable current) {
+        final var changes = new ArrayList<LeaderboardDelta.Change>();
+
+        for (int i = 0; i < current.size(); i++) {
+            final var slot = current.slotAt(i);
+            final var key = current.keyAt(slot);
+            final var rank = current.rankAt(slot);
+            final var score = current.scoreAt(slot);
+            final var before = previous.indexOf(key);
+
+            if(before < 0) {
+                changes.add(new LeaderboardDelta.Change(LeaderboardDelta.Kind.NEW, key, 0, rank, Double.NaN, score));
+                continue;
+            }
+
+            final var previousRank = previous.rankAt(before);
+            final var previousScore = previous.scoreAt(before);
+            if(rank < previousRank)
+                changes.add(new LeaderboardDelta.Change(LeaderboardDelta.Kind.MOVED_UP, key, previousRank, rank, previousScore, score));
+            else if(rank > previousRank)
+                changes.add(new LeaderboardDelta.Change(LeaderboardDelta.Kind.MOVED_DOWN, key, previousRank, rank, previousScore, score));
+            else if(Double.compare(score, previousScore) != 0)
+                changes.add(new LeaderboardDelta.Change(LeaderboardDelta.Kind.SCORE_CHANGED, key, previousRank, rank, previousScore, score));
+        }
+
+        for (int i = 0; i < previous.size(); i++) {
+            final var slot = previous.slotAt(i);
+            final var key = previous.keyAt(slot);
+            if(current.indexOf(key) < 0)
+                changes.add(new LeaderboardDelta.Change(LeaderboardDelta.Kind.DROPPED, key, previous.rankAt(slot), 0, previous.scoreAt(slot), Double.NaN));
+        }
+
+        return changes;
+    }
+}
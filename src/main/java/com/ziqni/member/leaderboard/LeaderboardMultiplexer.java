@@ -0,0 +1,314 @@
+package com.ziqni.member.leaderboard;
+
+import com.ziqni.member.sdk.ZiqniMemberApiFactory;
+import com.ziqni.member.sdk.model.Leaderboard;
+import com.ziqni.member.sdk.model.LeaderboardFilter;
+import com.ziqni.member.sdk.model.LeaderboardSubscriptionRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shares one server side leaderboard subscription per (contest, filter) between any number of local listeners.
+ * The first listener subscribes, the last one to leave unsubscribes. Updates are fanned out over a copy-on-write
+ * array of listeners that is read without locks.
+ * <p>
+ * Leaderboard updates only carry the leaderboard id, so an update is delivered to every filter subscribed for that
+ * contest.
+ * <p>
+ * Subscribe and unsubscribe requests are sent outside the map locks, in order per (contest, filter). After the
+ * streaming client reconnects call {@link #resubscribe()} to restore the server side subscriptions.
+ * <p>
+ * Listeners registered with {@link Delivery#CONFLATED} are called off the socket thread and only ever see the
+ * newest update per leaderboard, see {@link ConflatingListener}.
+ */
+public class LeaderboardMultiplexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardMultiplexer.class);
+
+    public enum Delivery {
+        /** Called on the thread that received the update, for every update */
+        DIRECT,
+        /** Called on the delivery executor with the newest update only */
+        CONFLATED
+    }
+
+    private final Function<LeaderboardSubscriptionRequest, CompletableFuture<?>> subscriptions;
+    private final Executor deliveryExecutor;
+    private final ConcurrentHashMap<Key, Channel> channels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicReference<Channel[]>> channelsByContest = new ConcurrentHashMap<>();
+    // Unsubscribes not yet sent, a new channel for the same key waits for them so the server sees them in order
+    private final ConcurrentHashMap<Key, CompletableFuture<Void>> unsubscribing = new ConcurrentHashMap<>();
+
+    public LeaderboardMultiplexer(ZiqniMemberApiFactory ziqniMemberApiFactory) {
+        this(request -> ziqniMemberApiFactory.getLeaderboardApi().subscribeToLeaderboard(request));
+    }
+
+    public LeaderboardMultiplexer(Function<LeaderboardSubscriptionRequest, CompletableFuture<?>> subscriptions) {
+        this(subscriptions, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public LeaderboardMultiplexer(Function<LeaderboardSubscriptionRequest, CompletableFuture<?>> subscriptions, Executor deliveryExecutor) {
+        this.subscriptions = subscriptions;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    public Registration subscribe(String contestId, LeaderboardFilter filter, Consumer<Leaderboard> listener) {
+        return subscribe(contestId, filter, listener, Delivery.DIRECT);
+    }
+
+    public Registration subscribe(String contestId, LeaderboardFilter filter, Consumer<Leaderboard> consumer, Delivery delivery) {
+        final var key = new Key(contestId, filter);
+        final var listener = delivery == Delivery.CONFLATED
+                ? new ConflatingListener(consumer, deliveryExecutor)
+                : consumer;
+        final var registration = new Registration(key, listener);
+
+        final var previous = new AtomicReference<CompletableFuture<Void>>();
+        final var channel = channels.compute(key, (k, existing) -> {
+            if(existing != null) {
+                existing.add(listener);
+                return existing;
+            }
+            final var created = new Channel(k);
+            created.add(listener);
+            addChannel(created);
+            previous.set(unsubscribing.getOrDefault(k, CompletableFuture.completedFuture(null)));
+            return created;
+        });
+        registration.channel = channel;
+
+        if(previous.get() != null) {
+            previous.get().thenRun(() -> {
+                send(key, LeaderboardSubscriptionRequest.ActionEnum.SUBSCRIBE).whenComplete((response, throwable) -> {
+                    if(throwable == null) {
+                        channel.subscribed.complete(response);
+                        return;
+                    }
+                    logger.error("Failed to subscribe to leaderboard for contest [{}]", key.contestId(), throwable);
+                    // The server holds nothing to unsubscribe, drop the channel so the next subscribe tries again
+                    channels.computeIfPresent(key, (k, current) -> {
+                        if(current != channel)
+                            return current;
+                        removeChannel(channel);
+                        return null;
+                    });
+                    channel.subscribed.completeExceptionally(throwable);
+                });
+                channel.subscribeSent.complete(null);
+            });
+        }
+
+        return registration;
+    }
+
+    /**
+     * Sends a subscribe for every shared subscription again, e.g. once the streaming client has reconnected and the
+     * server no longer has them. Listeners stay registered.
+     *
+     * @return the number of subscriptions requested
+     */
+    public int resubscribe() {
+        final var current = channels.values().toArray(new Channel[0]);
+        for (Channel channel : current) {
+            channel.subscribeSent.thenRun(() -> send(channel.key, LeaderboardSubscriptionRequest.ActionEnum.SUBSCRIBE)
+                    .whenComplete((response, throwable) -> {
+                        if(throwable != null)
+                            logger.error("Failed to resubscribe to leaderboard for contest [{}]", channel.key.contestId(), throwable);
+                    }));
+        }
+        return current.length;
+    }
+
+    /**
+     * Wire to the CallbacksApi leaderboardUpdateHandler.
+     */
+    public void onLeaderboardUpdate(Leaderboard leaderboard) {
+        final var contest = channelsByContest.get(leaderboard.getId());
+        if(contest == null)
+            return;
+
+        for (Channel channel : contest.get())
+            channel.broadcast(leaderboard);
+    }
+
+    /**
+     * @return the number of subscriptions held on the server
+     */
+    public int serverSubscriptions() {
+        return channels.size();
+    }
+
+    public int listeners(String contestId, LeaderboardFilter filter) {
+        final var channel = channels.get(new Key(contestId, filter));
+        return channel == null ? 0 : channel.listeners.get().length;
+    }
+
+    private void unsubscribe(Registration registration) {
+        final var removed = new AtomicReference<Channel>();
+        final var sent = new CompletableFuture<Void>();
+        channels.computeIfPresent(registration.key, (key, channel) -> {
+            // A channel whose subscribe failed was already dropped, never touch its replacement
+            if(channel != registration.channel || !channel.remove(registration.listener))
+                return channel;
+
+            removeChannel(channel);
+            unsubscribing.put(key, sent);
+            removed.set(channel);
+            return null;
+        });
+
+        final var channel = removed.get();
+        if(channel == null)
+            return;
+
+        // After the channel's own subscribe, which may still be waiting on an earlier unsubscribe
+        channel.subscribeSent.thenRun(() -> {
+            send(channel.key, LeaderboardSubscriptionRequest.ActionEnum.UNSUBSCRIBE).whenComplete((response, throwable) -> {
+                if(throwable != null)
+                    logger.error("Failed to unsubscribe from leaderboard for contest [{}]", channel.key.contestId(), throwable);
+            });
+            unsubscribing.remove(channel.key, sent);
+            sent.complete(null);
+        });
+    }
+
+    /**
+     * A request that throws instead of returning a failed future is treated the same way.
+     */
+    private CompletableFuture<?> send(Key key, LeaderboardSubscriptionRequest.ActionEnum action) {
+        try {
+            return subscriptions.apply(request(key, action));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void addChannel(Channel channel) {
+        final var contest = channelsByContest.computeIfAbsent(channel.key.contestId(), id -> new AtomicReference<>(new Channel[0]));
+        contest.updateAndGet(current -> append(current, channel));
+    }
+
+    private void removeChannel(Channel channel) {
+        final var contest = channelsByContest.get(channel.key.contestId());
+        if(contest != null)
+            contest.updateAndGet(current -> without(current, channel));
+    }
+
+    private static LeaderboardSubscriptionRequest request(Key key, LeaderboardSubscriptionRequest.ActionEnum action) {
+        return new LeaderboardSubscriptionRequest()
+                .leaderboardFilter(key.filter())
+                .action(action)
+                .entityId(key.contestId());
+    }
+
+    private static <T> T[] append(T[] array, T item) {
+        final var copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = item;
+        return copy;
+    }
+
+    private static <T> T[] without(T[] array, T item) {
+        for (int i = 0; i < array.length; i++) {
+            if(array[i] == item) {
+                final var copy = Arrays.copyOf(array, array.length - 1);
+                System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+                return copy;
+            }
+        }
+        return array;
+    }
+
+    record Key(String contestId, LeaderboardFilter filter) {
+        Key {
+            Objects.requireNonNull(contestId, "contestId");
+        }
+    }
+
+    private static final class Channel {
+        private final Key key;
+        @SuppressWarnings("unchecked")
+        private final AtomicReference<Consumer<Leaderboard>[]> listeners = new AtomicReference<>(new Consumer[0]);
+        // Completes with the subscribe response, or exceptionally if it failed
+        private final CompletableFuture<Object> subscribed = new CompletableFuture<>();
+        private final CompletableFuture<Void> subscribeSent = new CompletableFuture<>();
+
+        private Channel(Key key) {
+            this.key = key;
+        }
+
+        private void add(Consumer<Leaderboard> listener) {
+            listeners.updateAndGet(current -> append(current, listener));
+        }
+
+        /**
+         * @return true if that was the last listener
+         */
+        private boolean remove(Consumer<Leaderboard> listener) {
+            return listeners.updateAndGet(current -> without(current, listener)).length == 0;
+        }
+
+        private void broadcast(Leaderboard leaderboard) {
+            for (Consumer<Leaderboard> listener : listeners.get()) {
+                try {
+                    listener.accept(leaderboard);
+                } catch (RuntimeException e) {
+                    logger.error("Leaderboard listener failed for contest [{}]", key.contestId(), e);
+                }
+            }
+        }
+    }
+
+    public final class Registration implements AutoCloseable {
+        private final Key key;
+        private final Consumer<Leaderboard> listener;
+        private volatile Channel channel;
+        private volatile boolean closed = false;
+
+        private Registration(Key key, Consumer<Leaderboard> listener) {
+            this.key = key;
+            this.listener = listener;
+        }
+
+        /**
+         * @return updates replaced by a newer one before delivery, always 0 for direct delivery
+         */
+        public long conflated() {
+            return listener instanceof ConflatingListener conflating ? conflating.conflated() : 0;
+        }
+
+        /**
+         * @return updates that were never delivered, always 0 for direct delivery
+         */
+        public long dropped() {
+            return listener instanceof ConflatingListener conflating ? conflating.dropped() : 0;
+        }
+
+        /**
+         * @return completes once the shared server subscription has been answered, exceptionally if it failed in
+         * which case this registration receives no updates and a new subscribe is needed
+         */
+        public CompletableFuture<?> subscribed() {
+            return channel.subscribed;
+        }
+
+        @Override
+        public void close() {
+            if(closed)
+                return;
+            closed = true;
+            unsubscribe(this);
+            if(listener instanceof ConflatingListener conflating)
+                conflating.close();
+        }
+    }
+}
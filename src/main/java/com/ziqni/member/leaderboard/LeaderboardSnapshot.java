@@ -0,0 +1,77 @@
+package com.ziqni.member.leaderboard;
+
+/**
+ * An immutable copy of a leaderboard's latest known state, in the order participants appeared in the update. The
+ * array accessors return copies; use the indexed accessors to read without copying.
+ */
+public final class LeaderboardSnapshot {
+
+    private final String leaderboardId;
+    private final long version;
+    private final String[] participants;
+    private final int[] ranks;
+    private final double[] scores;
+
+    /**
+     * Takes ownership of the arrays, the caller must not keep or change them.
+     */
+    LeaderboardSnapshot(String leaderboardId, long version, String[] participants, int[] ranks, double[] scores) {
+        this.leaderboardId = leaderboardId;
+        this.version = version;
+        this.participants = participants;
+        this.ranks = ranks;
+        this.scores = scores;
+    }
+
+    public String leaderboardId() {
+        return leaderboardId;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return participants.length;
+    }
+
+    public String participant(int index) {
+        return participants[index];
+    }
+
+    public int rank(int index) {
+        return ranks[index];
+    }
+
+    public double score(int index) {
+        return scores[index];
+    }
+
+    public String[] participants() {
+        return participants.clone();
+    }
+
+    public int[] ranks() {
+        return ranks.clone();
+    }
+
+    public double[] scores() {
+        return scores.clone();
+    }
+
+    /**
+     * @return the participant's rank, or 0 if the participant is not on the leaderboard
+     */
+    public int rankOf(String participant) {
+        for (int i = 0; i < participants.length; i++) {
+            if(participants[i].equals(participant))
+                return ranks[i];
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderboardSnapshot[leaderboardId=" + leaderboardId + ", version=" + version + ", size=" + participants.length + "]";
+    }
+}
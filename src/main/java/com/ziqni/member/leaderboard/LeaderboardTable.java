@@ -0,0 +1,119 @@
+package com.ziqni.member.leaderboard;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing table from participant key to rank and score, backed by parallel primitive arrays so an update
+ * does not box a value or allocate an entry per participant. Cleared and refilled on every leaderboard update.
+ */
+final class LeaderboardTable {
+
+    private static final int EMPTY = -1;
+
+    private String[] keys;
+    private int[] ranks;
+    private double[] scores;
+    private int[] slots; // Insertion order, so iteration only visits used slots
+    private int size = 0;
+    private int mask;
+
+    LeaderboardTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot holding the key, or -1
+     */
+    int indexOf(String key) {
+        var slot = spread(key.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if(keys[slot].equals(key))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    void put(String key, int rank, double score) {
+        if((size + 1) * 2 > keys.length)
+            grow();
+
+        var slot = spread(key.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if(keys[slot].equals(key)) {
+                ranks[slot] = rank;
+                scores[slot] = score;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        ranks[slot] = rank;
+        scores[slot] = score;
+        slots[size++] = slot;
+    }
+
+    /**
+     * @return the slot of the i-th inserted key
+     */
+    int slotAt(int i) {
+        return slots[i];
+    }
+
+    String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int rankAt(int slot) {
+        return ranks[slot];
+    }
+
+    double scoreAt(int slot) {
+        return scores[slot];
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++)
+            keys[slots[i]] = null;
+        size = 0;
+    }
+
+    private void grow() {
+        final var oldKeys = keys;
+        final var oldRanks = ranks;
+        final var oldScores = scores;
+        final var oldSlots = slots;
+        final var oldSize = size;
+
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldSize; i++) {
+            final var slot = oldSlots[i];
+            put(oldKeys[slot], oldRanks[slot], oldScores[slot]);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        ranks = new int[capacity];
+        scores = new double[capacity];
+        slots = new int[capacity / 2 + 1];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        var capacity = 16;
+        while (capacity < expectedSize * 2)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,15 @@
+package com.ziqni.metrics;
+
+/**
+ * A count that only goes up.
+ */
+public interface Counter extends Meter {
+
+    default void increment() {
+        increment(1);
+    }
+
+    void increment(long amount);
+
+    long count();
+}
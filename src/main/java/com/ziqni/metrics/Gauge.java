@@ -0,0 +1,9 @@
+package com.ziqni.metrics;
+
+/**
+ * A value read when the metrics are exported, e.g. a queue depth.
+ */
+public interface Gauge extends Meter {
+
+    double value();
+}
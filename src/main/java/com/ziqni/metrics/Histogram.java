@@ -0,0 +1,48 @@
+package com.ziqni.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts recorded values into fixed buckets. Values are recorded as longs in the meter's own unit, nanoseconds for
+ * timers, and scaled on export so the hot path does no floating point work.
+ */
+public interface Histogram extends Meter {
+
+    /** Upper bounds for timers, 100µs to 30s, in nanoseconds */
+    long[] LATENCY_NANOS = {
+            100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000,
+            10_000_000, 25_000_000, 50_000_000,
+            100_000_000, 250_000_000, 500_000_000,
+            1_000_000_000, 2_500_000_000L, 5_000_000_000L,
+            10_000_000_000L, 30_000_000_000L
+    };
+
+    /** Nanoseconds to the seconds Prometheus expects */
+    double NANOS_TO_SECONDS = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    void record(long value);
+
+    default void recordNanosSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the inclusive upper bound of each bucket, in recorded units
+     */
+    long[] bounds();
+
+    /**
+     * @return the count of each bucket followed by the count above the last bound, not cumulative
+     */
+    long[] bucketCounts();
+
+    long count();
+
+    long sum();
+
+    /**
+     * @return the factor that turns a recorded value into the exported unit
+     */
+    double scale();
+}
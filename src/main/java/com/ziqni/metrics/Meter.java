@@ -0,0 +1,26 @@
+package com.ziqni.metrics;
+
+import java.util.List;
+
+/**
+ * A named, labelled measurement held by a {@link MetricsRegistry}.
+ */
+public interface Meter {
+
+    Id id();
+
+    /**
+     * @param labels alternating label names and values
+     */
+    record Id(String name, String help, List<String> labels) {
+
+        public Id {
+            if(labels.size() % 2 != 0)
+                throw new IllegalArgumentException("Labels must be name and value pairs: " + labels);
+        }
+
+        public static Id of(String name, String help, String... labels) {
+            return new Id(name, help, List.of(labels));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ziqni.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The process wide registry. Components take their meters from here when they are created, so a different registry
+ * must be set before the clients are built.
+ */
+public final class Metrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+    private static volatile MetricsRegistry registry = new SimpleMetricsRegistry();
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return registry;
+    }
+
+    public static void setRegistry(MetricsRegistry registry) {
+        Metrics.registry = registry;
+    }
+
+    /**
+     * Records the time since a server side epoch millisecond timestamp, e.g. from a message header. Missing or
+     * unparseable timestamps are skipped, and clock skew that puts the server ahead is recorded as zero.
+     */
+    public static void recordLag(Histogram timer, String epochMillis) {
+        if(epochMillis == null || epochMillis.isEmpty())
+            return;
+        try {
+            final var lagMillis = System.currentTimeMillis() - Long.parseLong(epochMillis);
+            timer.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, lagMillis)));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring unparseable timestamp [{}]", epochMillis);
+        }
+    }
+}
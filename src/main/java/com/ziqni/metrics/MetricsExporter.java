@@ -0,0 +1,13 @@
+package com.ziqni.metrics;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Publishes a snapshot of the meters somewhere outside the process.
+ */
+@FunctionalInterface
+public interface MetricsExporter {
+
+    void export(Collection<Meter> meters) throws IOException;
+}
@@ -0,0 +1,41 @@
+package com.ziqni.metrics;
+
+import java.util.Collection;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Creates and holds meters. Asking twice for the same name and labels returns the same meter, so callers can look
+ * a meter up once and keep it: recording is then a single add with no lookup.
+ * <p>
+ * {@link SimpleMetricsRegistry} is the built in implementation; another monitoring library can be plugged in by
+ * implementing this interface and passing it to {@link Metrics#setRegistry(MetricsRegistry)}.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * @param labels alternating label names and values
+     */
+    Counter counter(String name, String help, String... labels);
+
+    Histogram histogram(String name, String help, long[] bounds, double scale, String... labels);
+
+    /**
+     * A histogram recording nanoseconds and exported in seconds.
+     */
+    default Histogram timer(String name, String help, String... labels) {
+        return histogram(name, help, Histogram.LATENCY_NANOS, Histogram.NANOS_TO_SECONDS, labels);
+    }
+
+    /**
+     * Registers a gauge read on export. A second registration under the same name and labels replaces the first.
+     */
+    Gauge gauge(String name, String help, DoubleSupplier value, String... labels);
+
+    /**
+     * Unregisters the meter, e.g. a gauge reading a component that is being closed. Does nothing if another meter
+     * has since been registered under the same name and labels.
+     */
+    void remove(Meter meter);
+
+    Collection<Meter> meters();
+}
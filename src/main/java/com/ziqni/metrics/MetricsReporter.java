@@ -0,0 +1,53 @@
+package com.ziqni.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports a registry on a fixed interval from its own daemon thread, and once more on close so the last interval
+ * is not lost.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final MetricsRegistry registry;
+    private final MetricsExporter exporter;
+    private final ScheduledExecutorService scheduler;
+
+    public MetricsReporter(MetricsRegistry registry, MetricsExporter exporter, Duration interval) {
+        this.registry = registry;
+        this.exporter = exporter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(this::export, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void export() {
+        try {
+            exporter.export(registry.meters());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to export metrics", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        export();
+    }
+}
@@ -0,0 +1,120 @@
+package com.ziqni.metrics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the meters in the Prometheus text exposition format, for the node_exporter textfile collector or any
+ * scraper that reads a file. The file is written beside the target and moved into place, so a reader never sees a
+ * partial write.
+ */
+public class PrometheusTextFileExporter implements MetricsExporter {
+
+    private static final MathContext SIGNIFICANT_DIGITS = new MathContext(12);
+
+    private final Path file;
+
+    public PrometheusTextFileExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void export(Collection<Meter> meters) throws IOException {
+        final var parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final var temporary = parent.resolve(file.getFileName() + ".tmp");
+        Files.writeString(temporary, format(meters), StandardCharsets.UTF_8);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static String format(Collection<Meter> meters) {
+        final var out = new StringBuilder();
+        final var byName = meters.stream()
+                .sorted(Comparator.comparing((Meter meter) -> meter.id().name()).thenComparing(meter -> meter.id().labels().toString()))
+                .collect(Collectors.groupingBy(meter -> meter.id().name(), LinkedHashMap::new, Collectors.toList()));
+
+        byName.forEach((name, family) -> {
+            final var first = family.get(0);
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(first.id().help())).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type(first)).append('\n');
+            for (Meter meter : family) {
+                switch (meter) {
+                    case Counter counter -> sample(out, name, meter.id().labels(), null, counter.count());
+                    case Gauge gauge -> sample(out, name, meter.id().labels(), null, gauge.value());
+                    case Histogram histogram -> histogram(out, name, histogram);
+                    default -> { }
+                }
+            }
+        });
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String name, Histogram histogram) {
+        final var bounds = histogram.bounds();
+        final var counts = histogram.bucketCounts();
+        final var labels = histogram.id().labels();
+
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += counts[i];
+            sample(out, name + "_bucket", labels, number(bounds[i] * histogram.scale()), cumulative);
+        }
+        cumulative += counts[bounds.length];
+        sample(out, name + "_bucket", labels, "+Inf", cumulative);
+        sample(out, name + "_sum", labels, null, histogram.sum() * histogram.scale());
+        sample(out, name + "_count", labels, null, cumulative);
+    }
+
+    private static void sample(StringBuilder out, String name, List<String> labels, String le, double value) {
+        out.append(name);
+        if(!labels.isEmpty() || le != null) {
+            out.append('{');
+            for (int i = 0; i < labels.size(); i += 2) {
+                if(i > 0)
+                    out.append(',');
+                out.append(labels.get(i)).append("=\"").append(escapeLabel(labels.get(i + 1))).append('"');
+            }
+            if(le != null)
+                out.append(labels.isEmpty() ? "" : ",").append("le=\"").append(le).append('"');
+            out.append('}');
+        }
+        out.append(' ').append(number(value)).append('\n');
+    }
+
+    private static String type(Meter meter) {
+        return switch (meter) {
+            case Counter counter -> "counter";
+            case Histogram histogram -> "histogram";
+            default -> "gauge";
+        };
+    }
+
+    private static String number(double value) {
+        if(Double.isNaN(value))
+            return "NaN";
+        if(Double.isInfinite(value))
+            return value > 0 ? "+Inf" : "-Inf";
+        if(value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        // Scaling to seconds leaves float noise such as 30.000000000000004
+        return new BigDecimal(value).round(SIGNIFICANT_DIGITS).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabel(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
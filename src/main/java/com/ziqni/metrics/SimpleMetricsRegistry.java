@@ -0,0 +1,145 @@
+package com.ziqni.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * In memory registry backed by {@link LongAdder}s, cheap to record into from many threads at once.
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry {
+
+    private final ConcurrentHashMap<Key, Meter> meters = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name, String help, String... labels) {
+        return register(Meter.Id.of(name, help, labels), Counter.class, SimpleCounter::new);
+    }
+
+    @Override
+    public Histogram histogram(String name, String help, long[] bounds, double scale, String... labels) {
+        return register(Meter.Id.of(name, help, labels), Histogram.class, id -> new SimpleHistogram(id, bounds, scale));
+    }
+
+    @Override
+    public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+        final var id = Meter.Id.of(name, help, labels);
+        final var gauge = new SimpleGauge(id, value);
+        meters.put(new Key(id), gauge);
+        return gauge;
+    }
+
+    @Override
+    public void remove(Meter meter) {
+        meters.remove(new Key(meter.id()), meter);
+    }
+
+    @Override
+    public Collection<Meter> meters() {
+        return List.copyOf(meters.values());
+    }
+
+    private <M extends Meter> M register(Meter.Id id, Class<M> type, Function<Meter.Id, M> factory) {
+        final var meter = meters.computeIfAbsent(new Key(id), key -> factory.apply(id));
+        if(!type.isInstance(meter))
+            throw new IllegalArgumentException(id.name() + " is already registered as a " + meter.getClass().getSimpleName());
+        return type.cast(meter);
+    }
+
+    /**
+     * Help text is not part of the identity.
+     */
+    private record Key(String name, List<String> labels) {
+        Key(Meter.Id id) {
+            this(id.name(), id.labels());
+        }
+    }
+
+    private record SimpleCounter(Id id, LongAdder adder) implements Counter {
+        SimpleCounter(Id id) {
+            this(id, new LongAdder());
+        }
+
+        @Override
+        public void increment(long amount) {
+            adder.add(amount);
+        }
+
+        @Override
+        public long count() {
+            return adder.sum();
+        }
+    }
+
+    private record SimpleGauge(Id id, DoubleSupplier supplier) implements Gauge {
+        @Override
+        public double value() {
+            return supplier.getAsDouble();
+        }
+    }
+
+    private static final class SimpleHistogram implements Histogram {
+        private final Id id;
+        private final long[] bounds;
+        private final double scale;
+        private final LongAdder[] buckets;
+        private final LongAdder sum = new LongAdder();
+
+        private SimpleHistogram(Id id, long[] bounds, double scale) {
+            this.id = id;
+            this.bounds = bounds.clone();
+            this.scale = scale;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        @Override
+        public Id id() {
+            return id;
+        }
+
+        @Override
+        public void record(long value) {
+            final var index = Arrays.binarySearch(bounds, value);
+            // An exact hit belongs to that bucket, otherwise to the first bound above the value
+            buckets[index >= 0 ? index : -index - 1].increment();
+            sum.add(value);
+        }
+
+        @Override
+        public long[] bounds() {
+            return bounds.clone();
+        }
+
+        @Override
+        public long[] bucketCounts() {
+            final var counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++)
+                counts[i] = buckets[i].sum();
+            return counts;
+        }
+
+        @Override
+        public long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets)
+                count += bucket.sum();
+            return count;
+        }
+
+        @Override
+        public long sum() {
+            return sum.sum();
+        }
+
+        @Override
+        public double scale() {
+            return scale;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ziqni.util;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A semaphore counted in bytes. A single request larger than the whole budget is admitted when nothing
+ * else is in use, so oversized items cannot deadlock the caller.
+ */
+public class ByteBudget {
+
+    private final long capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private long inUse = 0;
+
+    public ByteBudget(long capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    public boolean tryAcquire(long bytes) {
+        lock.lock();
+        try {
+            if(!fits(bytes))
+                return false;
+            inUse += bytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void acquire(long bytes) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!fits(bytes))
+                released.await();
+            inUse += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            inUse = Math.max(0, inUse - bytes);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long inUse() {
+        lock.lock();
+        try {
+            return inUse;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    private boolean fits(long bytes) {
+        return inUse == 0 || inUse + bytes <= capacity;
+    }
+}
@@ -0,0 +1,231 @@
+package com.ziqni.util;
+
+import com.ziqni.metrics.Counter;
+import com.ziqni.metrics.Gauge;
+import com.ziqni.metrics.Histogram;
+import com.ziqni.metrics.Metrics;
+import com.ziqni.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Moves streaming callback handlers off the socket's receive thread onto virtual threads, so a slow handler no
+ * longer holds up every other message on the socket.
+ * <p>
+ * Messages with the same key, usually the entity id, are handled one at a time in arrival order. Messages with
+ * different keys run concurrently. Each handler's run time is recorded, and runs longer than the budget are
+ * logged and counted. Invocations, queueing and run time are also recorded per handler in the metrics registry.
+ * <p>
+ * A key holds at most {@code maxQueuedPerKey} messages queued or running, further messages for it are dropped and
+ * counted until its handler catches up.
+ */
+public class CallbackDispatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallbackDispatcher.class);
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+    public static final int DEFAULT_MAX_QUEUED_PER_KEY = 1_000;
+
+    private final ExecutorService executor;
+    private final long budgetNanos;
+    private final int maxQueuedPerKey;
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private final MetricsRegistry metrics;
+    private final Gauge activeKeysGauge;
+
+    public record HandlerStats(String handler, long invocations, long failures, long dropped, long overBudget, Duration mean, Duration max, Duration meanQueued) {}
+
+    public CallbackDispatcher(Duration budget) {
+        this(Executors.newVirtualThreadPerTaskExecutor(), budget);
+    }
+
+    public CallbackDispatcher(ExecutorService executor, Duration budget) {
+        this(executor, budget, Metrics.registry());
+    }
+
+    public CallbackDispatcher(ExecutorService executor, Duration budget, MetricsRegistry metrics) {
+        this(executor, budget, metrics, DEFAULT_MAX_QUEUED_PER_KEY);
+    }
+
+    public CallbackDispatcher(ExecutorService executor, Duration budget, MetricsRegistry metrics, int maxQueuedPerKey) {
+        if(maxQueuedPerKey < 1)
+            throw new IllegalArgumentException("maxQueuedPerKey must be at least 1");
+        this.executor = executor;
+        this.budgetNanos = budget.toNanos();
+        this.maxQueuedPerKey = maxQueuedPerKey;
+        this.metrics = metrics;
+        this.activeKeysGauge = metrics.gauge("ziqni_callback_active_keys", "Callback keys with messages queued or running", this::activeKeys);
+    }
+
+    /**
+     * Wraps a handler so it runs on this dispatcher.
+     *
+     * @param handler name used in the latency stats and warnings
+     * @param key     ordering key of a message, null to run the message without ordering
+     */
+    public <H, T> BiConsumer<H, T> dispatching(String handler, Function<T, String> key, BiConsumer<H, T> delegate) {
+        final var handlerStats = stats.computeIfAbsent(handler, name -> new Stats(name, metrics));
+        return (headers, message) -> submit(handlerStats, key.apply(message), () -> delegate.accept(headers, message));
+    }
+
+    public List<HandlerStats> stats() {
+        return stats.values().stream().map(Stats::snapshot).toList();
+    }
+
+    /**
+     * @return keys with messages queued or running
+     */
+    public int activeKeys() {
+        return lanes.size();
+    }
+
+    /**
+     * Waits for the messages already queued to run, for up to the close timeout, then shuts the executor down.
+     * Queued messages are submitted to the executor one at a time, so shutting it down first would reject them.
+     */
+    @Override
+    public void close() {
+        final var pending = lanes.values().stream().map(lane -> lane.tail).toArray(CompletableFuture<?>[]::new);
+        try {
+            CompletableFuture.allOf(pending).get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // A handler failed, it has been logged
+        } catch (TimeoutException e) {
+            logger.warn("Closing with callbacks for {} keys still queued", lanes.size());
+        }
+        executor.shutdown();
+        metrics.remove(activeKeysGauge);
+    }
+
+    private void submit(Stats handlerStats, String key, Runnable task) {
+        final var queuedAt = System.nanoTime();
+        final Runnable timed = () -> run(handlerStats, key, queuedAt, task);
+
+        if(key == null) {
+            executor.execute(timed);
+            return;
+        }
+
+        // Chain behind the key's previous message whatever its outcome, unless the key is already full
+        final var accepted = new AtomicReference<CompletableFuture<Void>>();
+        lanes.compute(key, (k, lane) -> {
+            final var current = lane == null ? new Lane() : lane;
+            if(current.queued == maxQueuedPerKey)
+                return current;
+            current.queued++;
+            current.tail = current.tail == null
+                    ? CompletableFuture.runAsync(timed, executor)
+                    : current.tail.<Void>handleAsync((ignored, throwable) -> {
+                        timed.run();
+                        return null;
+                    }, executor);
+            accepted.set(current.tail);
+            return current;
+        });
+
+        final var queued = accepted.get();
+        if(queued == null) {
+            handlerStats.drop();
+            logger.debug("Callback handler [{}] has {} messages queued for [{}], dropped one", handlerStats.handler, maxQueuedPerKey, key);
+            return;
+        }
+        // The lane is dropped once its last message has run
+        queued.whenComplete((ignored, throwable) -> lanes.computeIfPresent(key, (k, lane) -> --lane.queued == 0 ? null : lane));
+    }
+
+    private void run(Stats handlerStats, String key, long queuedAt, Runnable task) {
+        final var start = System.nanoTime();
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            handlerStats.failures.increment();
+            logger.error("Callback handler [{}] failed for [{}]", handlerStats.handler, key, e);
+        } finally {
+            final var elapsed = System.nanoTime() - start;
+            handlerStats.record(start - queuedAt, elapsed);
+            if(elapsed > budgetNanos) {
+                handlerStats.overBudget.increment();
+                logger.warn("Callback handler [{}] took {}ms for [{}], budget is {}ms",
+                        handlerStats.handler, elapsed / 1_000_000, key, budgetNanos / 1_000_000);
+            }
+        }
+    }
+
+    /**
+     * Only changed inside the lanes map's compute methods, which serialise access per key.
+     */
+    private static final class Lane {
+        private int queued;
+        private volatile CompletableFuture<Void> tail;
+    }
+
+    private static final class Stats {
+        private final String handler;
+        private final Counter invoked;
+        private final Counter droppedCounter;
+        private final Histogram queued;
+        private final Histogram ran;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder queuedNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Stats(String handler, MetricsRegistry metrics) {
+            this.handler = handler;
+            this.invoked = metrics.counter("ziqni_callbacks_total", "Callback messages handled", "handler", handler);
+            this.queued = metrics.timer("ziqni_callback_queue_seconds", "Time a callback waited before its handler ran", "handler", handler);
+            this.ran = metrics.timer("ziqni_callback_run_seconds", "Callback handler run time", "handler", handler);
+            this.droppedCounter = metrics.counter("ziqni_callback_dropped_total", "Callback messages dropped because their key was full", "handler", handler);
+        }
+
+        private void drop() {
+            dropped.increment();
+            droppedCounter.increment();
+        }
+
+        private void record(long queuedFor, long elapsed) {
+            invocations.increment();
+            queuedNanos.add(queuedFor);
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            invoked.increment();
+            queued.record(queuedFor);
+            ran.record(elapsed);
+        }
+
+        private HandlerStats snapshot() {
+            final var count = invocations.sum();
+            return new HandlerStats(
+                    handler,
+                    count,
+                    failures.sum(),
+                    dropped.sum(),
+                    overBudget.sum(),
+                    Duration.ofNanos(count == 0 ? 0 : totalNanos.sum() / count),
+                    Duration.ofNanos(maxNanos.get()),
+                    Duration.ofNanos(count == 0 ? 0 : queuedNanos.sum() / count)
+            );
+        }
+    }
+}
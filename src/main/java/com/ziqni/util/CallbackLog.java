@@ -0,0 +1,187 @@
+package com.ziqni.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.ziqni.member.sdk.JSON;
+import com.ziqni.metrics.Counter;
+import com.ziqni.metrics.Metrics;
+import com.ziqni.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Logs callback and response models off the calling thread. The caller only checks the level, applies sampling
+ * and queues a reference to the model; a single background thread encodes it as one line of compact JSON and hands
+ * it to the logger as a parameter. Nothing is built for a message that is filtered out, and a full queue drops
+ * the message rather than blocking a socket thread.
+ * <p>
+ * High rate handlers can be sampled, logging one message in every n. Sampled and dropped messages are counted in
+ * the metrics registry.
+ */
+public class CallbackLog implements AutoCloseable {
+
+    private final Logger logger;
+    private final Function<Object, String> encoder;
+    private final BlockingQueue<Entry> queue;
+    private final Map<String, Sampler> samplers;
+    private final Counter sampled;
+    private final Counter dropped;
+    private final Thread writer;
+
+    private volatile boolean closed = false;
+
+    private record Entry(String handler, Object model) {}
+
+    private CallbackLog(Builder builder) {
+        this.logger = builder.logger;
+        this.encoder = builder.encoder;
+        this.queue = new ArrayBlockingQueue<>(builder.capacity);
+        this.samplers = Map.copyOf(builder.samplers);
+        this.sampled = builder.metrics.counter("ziqni_callback_log_skipped_total", "Callback log lines not written", "reason", "sampled");
+        this.dropped = builder.metrics.counter("ziqni_callback_log_skipped_total", "Callback log lines not written", "reason", "queue_full");
+        this.writer = Thread.ofPlatform().name("callback-log").daemon(true).start(this::writeLoop);
+    }
+
+    /**
+     * @param logger the logger lines are written to, usually the calling class's
+     */
+    public static Builder builder(Logger logger) {
+        return new Builder(logger);
+    }
+
+    /**
+     * Queues the model to be logged at info level under the handler name.
+     */
+    public void info(String handler, Object model) {
+        if(closed || !logger.isInfoEnabled())
+            return;
+
+        final var sampler = samplers.get(handler);
+        if(sampler != null && !sampler.take()) {
+            sampled.increment();
+            return;
+        }
+
+        if(!queue.offer(new Entry(handler, model)))
+            dropped.increment();
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting messages and writes what is already queued.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                write(queue.take());
+            } catch (InterruptedException e) {
+                // Closing, write whatever is left
+                Entry entry;
+                while ((entry = queue.poll()) != null)
+                    write(entry);
+                return;
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        try {
+            logger.info("{} {}", entry.handler(), encoder.apply(entry.model()));
+        } catch (RuntimeException e) {
+            logger.warn("Could not encode {} for [{}]", entry.model() == null ? null : entry.model().getClass().getSimpleName(), entry.handler(), e);
+        }
+    }
+
+    /**
+     * Lets through one message in every n.
+     */
+    private static final class Sampler {
+        private final long every;
+        private final AtomicLong seen = new AtomicLong();
+
+        private Sampler(long every) {
+            this.every = every;
+        }
+
+        private boolean take() {
+            return seen.getAndIncrement() % every == 0;
+        }
+    }
+
+    public static class Builder {
+        private final Logger logger;
+        private int capacity = 8192;
+        private Function<Object, String> encoder = CallbackLog::compactJson;
+        private final Map<String, Sampler> samplers = new HashMap<>();
+        private MetricsRegistry metrics = Metrics.registry();
+
+        private Builder(Logger logger) {
+            this.logger = logger;
+        }
+
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Replaces the default compact JSON encoding, e.g. to pick out a few fields.
+         */
+        public Builder encoder(Function<Object, String> encoder) {
+            this.encoder = encoder;
+            return this;
+        }
+
+        /**
+         * Logs only one in every n messages from the handler.
+         */
+        public Builder sample(String handler, long every) {
+            if(every < 1)
+                throw new IllegalArgumentException("every must be positive");
+            samplers.put(handler, new Sampler(every));
+            return this;
+        }
+
+        public Builder metrics(MetricsRegistry metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public CallbackLog build() {
+            if(capacity < 1)
+                throw new IllegalArgumentException("capacity must be positive");
+            return new CallbackLog(this);
+        }
+    }
+
+    /**
+     * One line JSON through the member SDK's mapper, instead of the models' multi-line toIndentedString output.
+     */
+    static String compactJson(Object model) {
+        try {
+            return JSON.getDefault().getMapper().writeValueAsString(model);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ziqni.util;
+
+import com.google.common.eventbus.EventBus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Completes when a streaming client reports it is connected, or fails when it reports a severe failure. Subclasses
+ * subscribe to the SDK specific event bus signals and call {@link #connected()} or {@link #failed(Object)}.
+ */
+public abstract class StreamingReadiness {
+
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    /**
+     * @return a future that completes once connected, or fails on a severe failure or after the timeout
+     */
+    public CompletableFuture<Void> ready(Duration timeout) {
+        return ready.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * As {@link #ready(Duration)}, and unregisters from the event bus once connected, failed or timed out. Each
+     * connect registers a new instance, left registered it would live as long as the factory.
+     */
+    protected CompletableFuture<Void> ready(Duration timeout, Supplier<EventBus> eventBus) {
+        return ready(timeout).whenComplete((ignored, throwable) -> {
+            try {
+                eventBus.get().unregister(this);
+            } catch (IllegalArgumentException e) {
+                // Never registered, initialise failed before it got that far
+            }
+        });
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    protected void connected() {
+        ready.complete(null);
+    }
+
+    protected void failed(Object failure) {
+        ready.completeExceptionally(new IllegalStateException("Streaming client failed to connect: " + failure));
+    }
+
+    protected void failed(Throwable throwable) {
+        ready.completeExceptionally(throwable);
+    }
+}
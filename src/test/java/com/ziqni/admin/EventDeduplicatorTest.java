@@ -0,0 +1,47 @@
+package com.ziqni.admin;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventDeduplicatorTest {
+
+    @Test
+    void dropsRepeatedEventRefIds() {
+        final var deduplicator = new EventDeduplicator(10_000, 0.001, Duration.ofHours(1), 1_000, false);
+
+        assertFalse(deduplicator.isDuplicate("1234"));
+        assertTrue(deduplicator.isDuplicate("1234"));
+        assertFalse(deduplicator.isDuplicate("5678"));
+        assertFalse(deduplicator.isDuplicate(null));
+
+        assertEquals(1, deduplicator.hits());
+        assertEquals(2, deduplicator.misses());
+    }
+
+    @Test
+    void forgottenIdsAreLetThroughUnlessUnconfirmedAreDropped() {
+        final var lenient = new EventDeduplicator(10_000, 0.001, Duration.ofHours(1), 1_000, false);
+        lenient.isDuplicate("1234");
+        lenient.forget("1234");
+        assertFalse(lenient.isDuplicate("1234"));
+        assertEquals(1, lenient.falsePositives());
+
+        final var strict = new EventDeduplicator(10_000, 0.001, Duration.ofHours(1), 1_000, true);
+        strict.isDuplicate("1234");
+        strict.forget("1234");
+        assertTrue(strict.isDuplicate("1234"));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        final var deduplicator = new EventDeduplicator(100_000, 0.01, Duration.ofHours(1), 10, false);
+
+        for (int i = 0; i < 100_000; i++)
+            deduplicator.isDuplicate("event-" + i);
+
+        assertTrue(deduplicator.falsePositives() < 2_000, "false positives: " + deduplicator.falsePositives());
+    }
+}
@@ -0,0 +1,218 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import com.ziqni.admin.sdk.model.Error;
+import com.ziqni.admin.sdk.model.ErrorDetail;
+import com.ziqni.admin.sdk.model.ModelApiResponse;
+import com.ziqni.admin.sdk.model.Result;
+import com.ziqni.metrics.SimpleMetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventPublisherTest {
+
+    @Test
+    void batchesUpToMaxBatchSize() {
+        final var batchSizes = new ArrayList<Integer>();
+        final var publisher = EventPublisher.builder(events -> {
+                    synchronized (batchSizes) {
+                        batchSizes.add(events.size());
+                    }
+                    return CompletableFuture.completedFuture(accepted(events));
+                })
+                .maxBatchSize(3)
+                .linger(Duration.ofMillis(200))
+                .metrics(new SimpleMetricsRegistry())
+                .build();
+
+        try (publisher) {
+            final var results = new ArrayList<CompletableFuture<String>>();
+            for (int i = 0; i < 7; i++)
+                results.add(publisher.publish(event("event-" + i)));
+
+            for (int i = 0; i < 7; i++)
+                assertEquals("id-event-" + i, results.get(i).join());
+        }
+        assertEquals(List.of(3, 3, 1), batchSizes);
+    }
+
+    @Test
+    void onlyRejectedEventsFail() {
+        final var publisher = EventPublisher.builder(events -> CompletableFuture.completedFuture(new ModelApiResponse()
+                        // Answered out of order, with the rejected event missing from the results
+                        .results(List.of(result(events.get(2)), result(events.get(0))))
+                        .errors(List.of(new Error().errorCode(400).message("error.bad_request").modelId(events.get(1).getEventRefId())))))
+                .maxBatchSize(3)
+                .linger(Duration.ofMillis(200))
+                .metrics(new SimpleMetricsRegistry())
+                .build();
+
+        try (publisher) {
+            final var first = publisher.publish(event("event-1"));
+            final var second = publisher.publish(event("event-2"));
+            final var third = publisher.publish(event("event-3"));
+
+            assertEquals("id-event-1", first.join());
+            assertEquals("id-event-3", third.join());
+            final var failure = assertThrows(CompletionException.class, second::join);
+            final var rejected = assertInstanceOf(EventPublisher.EventBatchException.class, failure.getCause());
+            assertEquals(400, rejected.getErrors().get(0).getErrorCode());
+        }
+    }
+
+    @Test
+    void rejectedEventsCanBeRetriedWithTheSameEventRefId() {
+        final var attempts = new AtomicInteger();
+        final var publisher = EventPublisher.builder(events -> CompletableFuture.completedFuture(attempts.incrementAndGet() == 1
+                        ? new ModelApiResponse().errors(List.of(new Error().errorCode(400).message("error.bad_request")))
+                        : accepted(events)))
+                .linger(Duration.ofMillis(1))
+                .deduplicator(new EventDeduplicator(10_000, 0.001, Duration.ofHours(1), 1_000, false))
+                .metrics(new SimpleMetricsRegistry())
+                .build();
+
+        try (publisher) {
+            assertThrows(CompletionException.class, () -> publisher.publish(event("event-1")).join());
+            assertEquals("id-event-1", publisher.publish(event("event-1")).join());
+
+            final var duplicate = assertThrows(CompletionException.class, () -> publisher.publish(event("event-1")).join());
+            assertInstanceOf(EventPublisher.DuplicateEventException.class, duplicate.getCause());
+        }
+    }
+
+    @Test
+    void aMissingResponseFailsTheBatchAndGivesBackItsPermit() throws Exception {
+        final var calls = new AtomicInteger();
+        final var publisher = EventPublisher.builder(events -> CompletableFuture.completedFuture(calls.incrementAndGet() == 1 ? null : accepted(events)))
+                .maxInFlightRequests(1)
+                .linger(Duration.ofMillis(1))
+                .metrics(new SimpleMetricsRegistry())
+                .build();
+
+        try (publisher) {
+            assertThrows(CompletionException.class, () -> publisher.publish(event("event-1")).join());
+            // Sent only if the first batch gave its one permit back
+            assertEquals("id-event-2", publisher.publish(event("event-2")).get(5, TimeUnit.SECONDS));
+            assertEquals(0, publisher.inFlightBytes());
+        }
+    }
+
+    @Test
+    void platformErrorsAreCountedByTheirDetailCode() {
+        final var metrics = new SimpleMetricsRegistry();
+        final var publisher = EventPublisher.builder(events -> CompletableFuture.completedFuture(new ModelApiResponse()
+                        .errors(List.of(new Error().errorCode(400).message("error.bad_request").modelId(events.get(0).getEventRefId())
+                                .detail(List.of(new ErrorDetail().errorCode(3214).message("error.at_least_member_id_or_member_ref_id_should_exist")))))))
+                .linger(Duration.ofMillis(1))
+                .metrics(metrics)
+                .build();
+
+        try (publisher) {
+            assertThrows(CompletionException.class, () -> publisher.publish(event("event-1")).join());
+        }
+        assertEquals(1, metrics.counter("ziqni_event_errors_total", "", "code", "3214", "source", "platform").count());
+        assertEquals(0, metrics.counter("ziqni_event_errors_total", "", "code", "400", "source", "platform").count());
+        // Closed, so its gauges are gone
+        assertTrue(metrics.meters().stream().noneMatch(meter -> meter.id().name().startsWith("ziqni_event_publisher_")));
+    }
+
+    @Test
+    void closeLeavesNoFuturePending() throws Exception {
+        final var publisher = EventPublisher.builder(events -> CompletableFuture.completedFuture(accepted(events)))
+                .linger(Duration.ofMillis(1))
+                .metrics(new SimpleMetricsRegistry())
+                .build();
+
+        final var results = new ArrayList<CompletableFuture<String>>();
+        final var start = new CountDownLatch(1);
+        final var stop = new AtomicBoolean(false);
+        final var publishers = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final var thread = t;
+            publishers.add(Thread.ofPlatform().start(() -> {
+                final var own = new ArrayList<CompletableFuture<String>>();
+                await(start);
+                for (int i = 0; !stop.get(); i++)
+                    own.add(publisher.publish(event("event-" + thread + "-" + i)));
+                synchronized (results) {
+                    results.addAll(own);
+                }
+            }));
+        }
+
+        start.countDown();
+        TimeUnit.MILLISECONDS.sleep(20);
+        publisher.close();
+        stop.set(true);
+        for (Thread thread : publishers)
+            thread.join();
+
+        assertFalse(results.isEmpty());
+        assertTrue(results.stream().allMatch(CompletableFuture::isDone));
+        assertThrows(CompletionException.class, () -> publisher.publish(event("late")).join());
+    }
+
+    @Test
+    void spilledEventsAreSentOnClose() throws Exception {
+        final var directory = Files.createTempDirectory("spill");
+        final var publisher = EventPublisher.builder(events -> CompletableFuture.supplyAsync(() -> accepted(events),
+                        CompletableFuture.delayedExecutor(10, TimeUnit.MILLISECONDS)))
+                .maxInFlightRequests(1)
+                .maxInFlightBytes(1) // One event at a time, the rest spill
+                .linger(Duration.ofMillis(1))
+                .overflowPolicy(EventPublisher.OverflowPolicy.SPILL_TO_DISK)
+                .spillDirectory(directory)
+                .metrics(new SimpleMetricsRegistry())
+                .build();
+
+        final var results = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 20; i++)
+            results.add(publisher.publish(event("event-" + i)));
+        assertTrue(publisher.spilled() > 0);
+
+        publisher.close();
+
+        for (int i = 0; i < 20; i++)
+            assertEquals("id-event-" + i, results.get(i).getNow(null));
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> file.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    private static CreateEventRequest event(String eventRefId) {
+        return new CreateEventRequest()
+                .memberRefId("member-1")
+                .action("buy")
+                .sourceValue(1.0)
+                .eventRefId(eventRefId);
+    }
+
+    private static ModelApiResponse accepted(List<CreateEventRequest> events) {
+        return new ModelApiResponse().results(events.stream().map(EventPublisherTest::result).toList());
+    }
+
+    private static Result result(CreateEventRequest event) {
+        return new Result().id("id-" + event.getEventRefId()).externalReference(event.getEventRefId());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventSpillTest {
+
+    @Test
+    void readsBackInOrderWithoutStartingNewFiles() throws Exception {
+        final var directory = Files.createTempDirectory("spill");
+        try (var spill = new EventSpill(directory)) {
+            for (int round = 0; round < 50; round++) {
+                spill.append(pending("event-" + round + "-a"));
+                spill.append(pending("event-" + round + "-b"));
+
+                assertEquals("event-" + round + "-a", spill.poll().event().getEventRefId());
+                assertEquals("event-" + round + "-b", spill.poll().event().getEventRefId());
+                assertNull(spill.poll());
+            }
+
+            // Draining as fast as it fills keeps reading the one segment being written
+            try (var files = Files.list(directory)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            try (var files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static EventPublisher.PendingEvent pending(String eventRefId) {
+        return new EventPublisher.PendingEvent(new CreateEventRequest().memberRefId("member-1").eventRefId(eventRefId), new CompletableFuture<>(), 0);
+    }
+}
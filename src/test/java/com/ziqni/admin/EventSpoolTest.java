@@ -0,0 +1,142 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysUnacknowledgedEventsAfterRestart() throws Exception {
+        try (var spool = new EventSpool(directory, 4096, Duration.ofMillis(10))) {
+            final var first = spool.append(event("event-1"));
+            spool.append(event("event-2"));
+            spool.append(event("event-3"));
+            spool.acknowledge(first);
+        }
+
+        try (var spool = new EventSpool(directory, 4096, Duration.ofMillis(10))) {
+            final List<String> replayed = new ArrayList<>();
+            assertEquals(2, spool.replay((sequence, event) -> replayed.add(event.getEventRefId())));
+            assertEquals(List.of("event-2", "event-3"), replayed);
+        }
+    }
+
+    @Test
+    void doesNotReplayEventsInFlight() throws Exception {
+        try (var spool = new EventSpool(directory, 4096, Duration.ofMillis(10))) {
+            final var inFlight = spool.append(event("event-1"));
+            final var failed = spool.append(event("event-2"));
+            spool.release(failed);
+
+            final List<Long> replayed = new ArrayList<>();
+            spool.replay((sequence, event) -> replayed.add(sequence));
+            assertEquals(List.of(failed), replayed);
+            assertNotEquals(inFlight, failed);
+
+            // Replayed events are in flight again until acknowledged or released
+            assertEquals(0, spool.replay((sequence, event) -> fail("already in flight")));
+        }
+    }
+
+    @Test
+    void rollsSegmentsAndAssignsMissingEventRefIds() throws Exception {
+        try (var spool = new EventSpool(directory, 512, Duration.ofMillis(10))) {
+            for (int i = 0; i < 20; i++) {
+                final var event = new CreateEventRequest().memberRefId("member-" + i).action("buy");
+                spool.append(event);
+                assertNotNull(event.getEventRefId());
+            }
+            assertEquals(20, spool.unacknowledgedCount());
+        }
+
+        try (var spool = new EventSpool(directory, 512, Duration.ofMillis(10))) {
+            assertEquals(20, spool.unacknowledgedCount());
+        }
+    }
+
+    @Test
+    void stopsAtACorruptRecord() throws Exception {
+        try (var spool = new EventSpool(directory, 4096, Duration.ofMillis(10))) {
+            spool.append(event("event-1"));
+            spool.append(event("event-2"));
+            spool.append(event("event-3"));
+        }
+
+        // Flip a byte in the middle of the second record's payload
+        final var segment = segments().get(0);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            final var second = 16 + header.getInt(0);
+            final var target = ByteBuffer.allocate(1);
+            channel.read(target, second + 24);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~target.get(0)}), second + 24);
+        }
+
+        try (var spool = new EventSpool(directory, 4096, Duration.ofMillis(10))) {
+            final List<String> replayed = new ArrayList<>();
+            assertEquals(1, spool.replay((sequence, event) -> replayed.add(event.getEventRefId())));
+            assertEquals(List.of("event-1"), replayed);
+
+            // Appends continue over the corrupt record
+            spool.append(event("event-4"));
+        }
+
+        try (var spool = new EventSpool(directory, 4096, Duration.ofMillis(10))) {
+            final List<String> replayed = new ArrayList<>();
+            spool.replay((sequence, event) -> replayed.add(event.getEventRefId()));
+            assertEquals(List.of("event-1", "event-4"), replayed);
+        }
+    }
+
+    @Test
+    void deletesAcknowledgedSegments() throws Exception {
+        try (var spool = new EventSpool(directory, 512, Duration.ofMillis(10))) {
+            final List<Long> sequences = new ArrayList<>();
+            for (int i = 0; i < 20; i++)
+                sequences.add(spool.append(event("event-" + i)));
+            assertTrue(segments().size() > 1);
+
+            sequences.forEach(spool::acknowledge);
+            final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (segments().size() > 1 && System.nanoTime() < deadline)
+                TimeUnit.MILLISECONDS.sleep(10);
+
+            // Only the segment being written is kept
+            assertEquals(1, segments().size());
+            spool.append(event("event-20"));
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private static CreateEventRequest event(String eventRefId) {
+        return new CreateEventRequest()
+                .memberRefId("member")
+                .action("buy")
+                .entityRefId("apples")
+                .sourceValue(5.0)
+                .eventRefId(eventRefId)
+                .unitOfMeasure("other");
+    }
+}
@@ -0,0 +1,95 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import com.ziqni.admin.sdk.model.Error;
+import com.ziqni.admin.sdk.model.Member;
+import com.ziqni.admin.sdk.model.MemberResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventValidatorTest {
+
+    @Test
+    void structuralChecksApplyBeforeTheCatalogueIsLoaded() {
+        try (var validator = validator(() -> CompletableFuture.completedFuture(Set.of("other")))) {
+            assertEquals(EventValidator.Violation.MEMBER_NOT_SET, validator.validate(event("other").memberRefId(null)));
+            assertEquals(EventValidator.Violation.POINTS_NOT_SET, validator.validate(event("other").sourceValue(null)));
+            assertNull(validator.validate(event("kg")));
+            assertEquals(2, validator.drainQuarantine().size());
+        }
+    }
+
+    @Test
+    void aFailedRefreshKeepsThePreviousCatalogue() {
+        final var units = new AtomicReference<CompletableFuture<Set<String>>>(CompletableFuture.completedFuture(Set.of("other")));
+        try (var validator = validator(units::get)) {
+            validator.refresh().join();
+            assertEquals(EventValidator.Violation.UNKNOWN_UNIT_OF_MEASURE, validator.validate(event("kg")));
+
+            // An error response from the platform, as the admin API loader turns it into a failed load
+            units.set(CompletableFuture.supplyAsync(() -> Set.copyOf(EventValidator.keys(
+                    List.of(new Error().errorCode(400).message("error.bad_request")), null, Function.<String>identity()))));
+            validator.refresh().join();
+
+            assertNull(validator.validate(event("other")));
+            assertEquals(EventValidator.Violation.UNKNOWN_UNIT_OF_MEASURE, validator.validate(event("kg")));
+        }
+    }
+
+    @Test
+    void aMissingActionIsAViolationOnceTheCatalogueIsLoaded() {
+        try (var validator = validator(() -> CompletableFuture.completedFuture(Set.of("other")))) {
+            validator.refresh().join();
+            assertEquals(EventValidator.Violation.ACTION_NOT_SET, validator.validate(event("other").action(null)));
+            assertEquals(EventValidator.Violation.UNKNOWN_ACTION, validator.validate(event("other").action("sell")));
+        }
+    }
+
+    @Test
+    void knownMembersAreLoadedThroughTheMembersQuery() {
+        final var members = new MemberQueryStream(request -> CompletableFuture.completedFuture(new MemberResponse()
+                .results(request.getRange() == null ? List.of(new Member().id("m-1").memberRefId("member-1")) : List.of())), 1);
+        final var loader = (Supplier<CompletableFuture<Set<String>>>) () -> EventValidator.loadMemberRefIds(members);
+
+        try (var validator = new EventValidator(() -> CompletableFuture.completedFuture(Set.of("other")),
+                () -> CompletableFuture.completedFuture(Set.of("buy")), loader, true, 10, Duration.ofHours(1))) {
+            // Not loaded yet, so not enforced
+            assertNull(validator.validate(event("other").memberRefId("member-2")));
+
+            validator.refresh().join();
+            assertNull(validator.validate(event("other")));
+            assertEquals(EventValidator.Violation.UNKNOWN_MEMBER, validator.validate(event("other").memberRefId("member-2")));
+
+            validator.registerKnownMembers(List.of("member-2"));
+            assertNull(validator.validate(event("other").memberRefId("member-2")));
+        }
+    }
+
+    @Test
+    void errorsAndMissingResultsFailTheLoad() {
+        assertThrows(IllegalStateException.class, () -> EventValidator.keys(List.of(new Error().errorCode(400)), List.of("other"), Function.<String>identity()));
+        assertThrows(IllegalStateException.class, () -> EventValidator.keys(null, null, Function.<String>identity()));
+        assertEquals(List.of("other"), EventValidator.keys(List.of(), List.of("other"), Function.<String>identity()));
+    }
+
+    private static EventValidator validator(Supplier<CompletableFuture<Set<String>>> units) {
+        return new EventValidator(units, () -> CompletableFuture.completedFuture(Set.of("buy")), false, 10, Duration.ofHours(1));
+    }
+
+    private static CreateEventRequest event(String unitOfMeasure) {
+        return new CreateEventRequest()
+                .memberRefId("member-1")
+                .action("buy")
+                .sourceValue(1.0)
+                .unitOfMeasure(unitOfMeasure);
+    }
+}
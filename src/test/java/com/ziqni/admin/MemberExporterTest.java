@@ -0,0 +1,146 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.model.Member;
+import com.ziqni.admin.sdk.model.MemberResponse;
+import com.ziqni.admin.sdk.model.QueryRequest;
+import com.ziqni.admin.sdk.model.RangeQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberExporterTest {
+
+    private static final List<Member> MEMBERS = IntStream.range(0, 60)
+            .mapToObj(i -> new Member()
+                    .id(MemberExporter.ID_ALPHABET.charAt(i) + "-member")
+                    .memberRefId("ref-" + i)
+                    .name(i % 2 == 0 ? "Member " + i : null)
+                    .tags(List.of("vip")))
+            .toList();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void exportsEveryPartitionAndSkipsFinishedOnesOnResume() throws Exception {
+        final var queries = new AtomicInteger();
+        final var members = new MemberQueryStream(request -> {
+            queries.incrementAndGet();
+            return CompletableFuture.completedFuture(new MemberResponse().results(query(request)));
+        }, 7);
+
+        final var boundaries = MemberExporter.boundaries(MemberExporter.ID_ALPHABET, 4);
+        final var report = new MemberExporter(members, directory, 4, 256).export(boundaries).join();
+
+        assertEquals(60, report.members());
+        long records = 0;
+        for (int partition = 0; partition < 4; partition++)
+            records += countRecords(directory.resolve(String.format("members-%03d.bin", partition)));
+        assertEquals(60, records);
+        assertEquals(report.bytes(), Files.size(directory.resolve("members-000.bin")) + Files.size(directory.resolve("members-001.bin"))
+                + Files.size(directory.resolve("members-002.bin")) + Files.size(directory.resolve("members-003.bin")));
+
+        queries.set(0);
+        final var resumed = new MemberExporter(members, directory, 4, 256).export(boundaries).join();
+        assertEquals(0, resumed.members());
+        assertEquals(0, queries.get());
+    }
+
+    @Test
+    void resumesAnInterruptedPartitionAfterItsCheckpoint() throws Exception {
+        // Partition 0 holds members 0 to 15, its third page fails so the export stops part way through it
+        final var failing = new AtomicBoolean(true);
+        final var failAfter = MEMBERS.get(13).getId();
+        final var members = new MemberQueryStream(request -> {
+            if(failing.get() && cursor(request) != null && cursor(request).compareTo(failAfter) >= 0)
+                return CompletableFuture.failedFuture(new IllegalStateException("connection lost"));
+            return CompletableFuture.completedFuture(new MemberResponse().results(query(request)));
+        }, 7);
+
+        final var boundaries = MemberExporter.boundaries(MemberExporter.ID_ALPHABET, 4);
+        assertThrows(CompletionException.class, () -> new MemberExporter(members, directory, 4, 256).export(boundaries).join());
+
+        final var checkpoint = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve("export.checkpoint"), StandardCharsets.UTF_8)) {
+            checkpoint.load(reader);
+        }
+        assertEquals("false", checkpoint.getProperty("0.done"));
+        assertNotNull(checkpoint.getProperty("0.cursor"));
+        final var position = Long.parseLong(checkpoint.getProperty("0.position"));
+        assertTrue(position > 0);
+        assertEquals(position, Files.size(directory.resolve("members-000.bin")));
+
+        // A write that made it to the file but not to the checkpoint, it must be dropped
+        Files.write(directory.resolve("members-000.bin"), new byte[]{0, 0, 0, 9, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        failing.set(false);
+        new MemberExporter(members, directory, 4, 256).export(boundaries).join();
+
+        final var ids = new ArrayList<String>();
+        for (int partition = 0; partition < 4; partition++)
+            ids.addAll(readIds(directory.resolve(String.format("members-%03d.bin", partition))));
+        assertEquals(MEMBERS.stream().map(Member::getId).toList(), ids);
+    }
+
+    private static String cursor(QueryRequest request) {
+        if(request.getRange() == null)
+            return null;
+        return request.getRange().stream()
+                .filter(range -> range.getGt() != null)
+                .map(range -> String.valueOf(range.getGt()))
+                .reduce((first, second) -> second)
+                .orElse(null);
+    }
+
+    private static List<Member> query(QueryRequest request) {
+        var matching = MEMBERS.stream();
+        for (RangeQuery range : request.getRange() == null ? List.<RangeQuery>of() : request.getRange()) {
+            if(range.getGt() != null)
+                matching = matching.filter(member -> member.getId().compareTo(String.valueOf(range.getGt())) > 0);
+            if(range.getGte() != null)
+                matching = matching.filter(member -> member.getId().compareTo(String.valueOf(range.getGte())) >= 0);
+            if(range.getLt() != null)
+                matching = matching.filter(member -> member.getId().compareTo(String.valueOf(range.getLt())) < 0);
+        }
+        return matching.limit(request.getLimit()).toList();
+    }
+
+    private static long countRecords(Path file) throws Exception {
+        final var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        long records = 0;
+        while (buffer.hasRemaining()) {
+            buffer.position(buffer.position() + buffer.getInt());
+            records++;
+        }
+        return records;
+    }
+
+    private static List<String> readIds(Path file) throws Exception {
+        final var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        final var ids = new ArrayList<String>();
+        while (buffer.hasRemaining()) {
+            final var next = buffer.getInt() + buffer.position();
+            final var id = new byte[buffer.getInt()];
+            buffer.get(id);
+            ids.add(new String(id, StandardCharsets.UTF_8));
+            buffer.position(next);
+        }
+        return ids;
+    }
+}
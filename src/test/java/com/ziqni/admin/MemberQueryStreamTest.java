@@ -0,0 +1,84 @@
+package com.ziqni.admin;
+
+import com.ziqni.admin.sdk.model.Member;
+import com.ziqni.admin.sdk.model.MemberResponse;
+import com.ziqni.admin.sdk.model.QueryRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberQueryStreamTest {
+
+    private static final List<Member> MEMBERS = IntStream.range(0, 25)
+            .mapToObj(i -> new Member().id(String.format("member-%03d", i)))
+            .toList();
+
+    @Test
+    void pagesByCursorWithoutSkipAndPrefetchesTwoPages() {
+        final List<QueryRequest> requests = new ArrayList<>();
+        final var members = new MemberQueryStream(request -> {
+            requests.add(request);
+            final var after = request.getRange() == null || request.getRange().isEmpty()
+                    ? ""
+                    : String.valueOf(request.getRange().get(0).getGt());
+            final var page = MEMBERS.stream()
+                    .filter(member -> member.getId().compareTo(after) > 0)
+                    .limit(request.getLimit())
+                    .toList();
+            return CompletableFuture.completedFuture(new MemberResponse().results(page));
+        }, 10);
+
+        try (var stream = members.stream(QueryRequest::new, "id", Member::getId)) {
+            final var first = stream.limit(5).toList();
+            assertEquals("member-004", first.get(4).getId());
+        }
+        // The first page and the two requested ahead of it
+        assertEquals(3, requests.size());
+        assertTrue(requests.stream().allMatch(request -> request.getSkip() == 0));
+
+        requests.clear();
+        try (var stream = members.stream(QueryRequest::new, "id", Member::getId)) {
+            assertEquals(MEMBERS, stream.toList());
+        }
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    void requestsTheNextPageWhenThePreviousOneArrives() {
+        final List<CompletableFuture<MemberResponse>> requests = new ArrayList<>();
+        final var members = new MemberQueryStream(request -> {
+            final var response = new CompletableFuture<MemberResponse>();
+            requests.add(response);
+            return response;
+        }, 10);
+
+        try (var stream = members.stream(QueryRequest::new)) {
+            assertEquals(1, requests.size());
+
+            // Nothing has been consumed yet, the pages still chain up to two ahead
+            requests.get(0).complete(new MemberResponse().results(MEMBERS.subList(0, 10)));
+            assertEquals(2, requests.size());
+            requests.get(1).complete(new MemberResponse().results(MEMBERS.subList(10, 20)));
+            assertEquals(2, requests.size());
+
+            final var iterator = stream.iterator();
+            assertEquals("member-000", iterator.next().getId());
+            assertEquals(3, requests.size());
+        }
+    }
+
+    @Test
+    void pagesBySkipWithoutACursor() {
+        final var members = new MemberQueryStream(request -> CompletableFuture.completedFuture(new MemberResponse().results(
+                MEMBERS.stream().skip(request.getSkip()).limit(request.getLimit()).toList())), 10);
+
+        try (var stream = members.stream(QueryRequest::new)) {
+            assertEquals(25, stream.count());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.ziqni.fake;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ziqni.admin.EventValidator.Violation;
+import com.ziqni.member.MemberAccessTokenService;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FakeZiqniServerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void issuesMemberTokens() throws Exception {
+        try (var server = FakeZiqniServer.builder().leaderboardInterval(Duration.ZERO).entityChangedInterval(Duration.ZERO).start()) {
+            MemberAccessTokenService.setTokenUri(server.tokenUri());
+            try {
+                final var response = MemberAccessTokenService.getTokenAsync("member-1", "api-key").get(5, TimeUnit.SECONDS);
+                assertEquals(3, response.getData().getJwtToken().split("\\.").length);
+            } finally {
+                MemberAccessTokenService.setTokenUri(MemberAccessTokenService.DEFAULT_TOKEN_URI);
+            }
+        }
+    }
+
+    @Test
+    void failsMemberTokensWithPlatformErrors() throws Exception {
+        try (var server = FakeZiqniServer.builder().leaderboardInterval(Duration.ZERO).entityChangedInterval(Duration.ZERO)
+                .errorRate(1).injectedErrors(Set.of(Violation.MEMBER_NOT_SET)).start()) {
+            MemberAccessTokenService.setTokenUri(server.tokenUri());
+            try {
+                final var failure = assertThrows(CompletionException.class,
+                        () -> MemberAccessTokenService.getTokenAsync("member-1", "api-key").orTimeout(5, TimeUnit.SECONDS).join());
+                final var rejected = assertInstanceOf(MemberAccessTokenService.MemberTokenException.class, failure.getCause());
+                assertEquals(400, rejected.getStatusCode());
+                final var error = MAPPER.readTree(rejected.getBody()).get("errors").get(0);
+                assertEquals("error.bad_request", error.get("message").asText());
+                assertEquals(3214, error.get("detail").get(0).get("errorCode").asInt());
+            } finally {
+                MemberAccessTokenService.setTokenUri(MemberAccessTokenService.DEFAULT_TOKEN_URI);
+            }
+        }
+    }
+
+    @Test
+    void answersCreateEventsWithPlatformErrorsOverStomp() throws Exception {
+        try (var server = FakeZiqniServer.builder().leaderboardInterval(Duration.ZERO).entityChangedInterval(Duration.ZERO).start()) {
+            final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+            final var socket = connect(server, received);
+
+            socket.sendText("SUBSCRIBE\nid:sub-0\ndestination:/user/queue/rpc-results\n\n\0", true).join();
+            socket.sendText("SEND\ndestination:/aapi/createEvents\ncorrelation-id:42\n\n"
+                    + "[{\"memberRefId\":\"member-1\",\"action\":\"buy\",\"sourceValue\":5.0,\"unitOfMeasure\":\"other\"},"
+                    + "{\"action\":\"buy\",\"sourceValue\":5.0,\"eventRefId\":\"event-2\"}]\0", true).join();
+
+            final var reply = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(reply);
+            assertTrue(reply.startsWith("MESSAGE"));
+            assertTrue(reply.contains("correlation-id:42"));
+            final var errors = MAPPER.readTree(body(reply)).get("errors");
+            assertEquals(1, errors.size());
+            assertEquals(400, errors.get(0).get("errorCode").asInt());
+            assertEquals("error.bad_request", errors.get(0).get("message").asText());
+            assertEquals("event-2", errors.get(0).get("modelId").asText());
+            assertEquals(3214, errors.get(0).get("detail").get(0).get("errorCode").asInt());
+            assertEquals("error.at_least_member_id_or_member_ref_id_should_exist", errors.get(0).get("detail").get(0).get("message").asText());
+            assertTrue(reply.contains("\"resultCount\":1"));
+            assertEquals(1, server.requests());
+
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+        }
+    }
+
+    @Test
+    void pushesLeaderboardsWithEachMemberOnce() throws Exception {
+        try (var server = FakeZiqniServer.builder().leaderboardInterval(Duration.ofMillis(20)).entityChangedInterval(Duration.ZERO)
+                .leaderboardSize(30).members(40).start()) {
+            final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+            final var socket = connect(server, received);
+
+            socket.sendText("SUBSCRIBE\nid:sub-0\ndestination:/user/queue/callbacks\n\n\0", true).join();
+            socket.sendText("SEND\ndestination:/mapi/subscribeToLeaderboard\n\n{\"entityId\":\"contest-1\",\"action\":\"SUBSCRIBE\"}\0", true).join();
+
+            String push;
+            do {
+                push = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(push);
+            } while (!push.contains("callback:leaderboardUpdate"));
+
+            final var memberIds = new HashSet<String>();
+            final var entries = MAPPER.readTree(body(push)).get("leaderboardEntries");
+            entries.forEach(entry -> entry.get("members").forEach(member -> {
+                assertTrue(member.hasNonNull("memberRefId"));
+                memberIds.add(member.get("memberId").asText());
+            }));
+            assertEquals(30, entries.size());
+            assertEquals(30, memberIds.size());
+
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+        }
+    }
+
+    @Test
+    void pushesLeaderboardsOnlyToTheSessionsSubscribedToThem() throws Exception {
+        try (var server = FakeZiqniServer.builder().leaderboardInterval(Duration.ofMillis(20)).entityChangedInterval(Duration.ZERO).start()) {
+            final BlockingQueue<String> first = new LinkedBlockingQueue<>();
+            final BlockingQueue<String> second = new LinkedBlockingQueue<>();
+            final var firstSocket = connect(server, first);
+            final var secondSocket = connect(server, second);
+
+            for (var socket : List.of(firstSocket, secondSocket)) {
+                socket.sendText("SUBSCRIBE\nid:sub-0\ndestination:/user/queue/callbacks\n\n\0", true).join();
+                socket.sendText("SEND\ndestination:/mapi/subscribeToLeaderboard\n\n{\"entityId\":\"contest-1\",\"action\":\"SUBSCRIBE\"}\0", true).join();
+            }
+            secondSocket.sendText("SEND\ndestination:/mapi/subscribeToLeaderboard\n\n{\"entityId\":\"contest-2\",\"action\":\"SUBSCRIBE\"}\0", true).join();
+            firstSocket.sendText("SEND\ndestination:/mapi/subscribeToLeaderboard\nreceipt:unsubscribed\n\n{\"entityId\":\"contest-1\",\"action\":\"UNSUBSCRIBE\"}\0", true).join();
+
+            String frame;
+            do {
+                frame = first.poll(5, TimeUnit.SECONDS);
+                assertNotNull(frame);
+            } while (!frame.startsWith("RECEIPT"));
+
+            // Both contests keep reaching the second session while the first one hears nothing more
+            final var contests = new HashSet<String>();
+            while (contests.size() < 2) {
+                frame = second.poll(5, TimeUnit.SECONDS);
+                assertNotNull(frame);
+                if(frame.contains("callback:leaderboardUpdate"))
+                    contests.add(MAPPER.readTree(body(frame)).get("id").asText());
+            }
+            assertTrue(first.stream().noneMatch(message -> message.contains("callback:leaderboardUpdate")));
+
+            firstSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+            secondSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+        }
+    }
+
+    private static WebSocket connect(FakeZiqniServer server, BlockingQueue<String> received) throws Exception {
+        final var socket = HttpClient.newHttpClient().newWebSocketBuilder()
+                .buildAsync(server.webSocketUri(), new WebSocket.Listener() {
+                    private final StringBuilder text = new StringBuilder();
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        text.append(data);
+                        if(last) {
+                            received.add(text.toString());
+                            text.setLength(0);
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                })
+                .get(5, TimeUnit.SECONDS);
+
+        socket.sendText("CONNECT\naccept-version:1.2\nhost:localhost\n\n\0", true).join();
+        assertTrue(received.poll(5, TimeUnit.SECONDS).startsWith("CONNECTED"));
+        return socket;
+    }
+
+    private static String body(String frame) {
+        return frame.substring(frame.indexOf("\n\n") + 2, frame.lastIndexOf('\0'));
+    }
+}
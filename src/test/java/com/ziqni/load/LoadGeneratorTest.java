@@ -0,0 +1,151 @@
+package com.ziqni.load;
+
+import com.ziqni.admin.sdk.model.CreateEventRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    @Test
+    void sendsAtTheConfiguredRateAndReportsFailures() throws Exception {
+        final var config = LoadGeneratorConfig.fromArgs("--members=10", "--sessionsPerSecond=100", "--eventsPerSecond=200",
+                "--warmup=0.2", "--duration=1");
+        final var sent = new AtomicInteger();
+        final var target = new InMemoryTarget(event -> sent.incrementAndGet() % 10 == 0
+                ? CompletableFuture.failedFuture(new IllegalStateException("rejected"))
+                : CompletableFuture.completedFuture(event.getEventRefId()));
+
+        final var report = new LoadGenerator(config, target).run();
+
+        assertEquals(10, target.sessions.size());
+        assertEquals(10, report.operation("session").completed());
+
+        final var events = report.operation("event");
+        assertEquals(240, sent.get(), 2);
+        assertEquals(200, events.completed() + events.failed(), 2);
+        assertEquals(20, events.failed(), 2);
+        assertEquals(0, events.dropped());
+        assertEquals(events.completed(), events.latency().getTotalCount());
+    }
+
+    @Test
+    void latencyIncludesRequestsQueuedBehindAStall() throws Exception {
+        final var config = LoadGeneratorConfig.fromArgs("--members=1", "--eventsPerSecond=200", "--warmup=0", "--duration=1");
+        final ExecutorService platform = Executors.newSingleThreadExecutor();
+        final var stalled = new AtomicBoolean(false);
+        final var target = new InMemoryTarget(event -> CompletableFuture.supplyAsync(() -> {
+            if(stalled.compareAndSet(false, true))
+                sleep(500);
+            return event.getEventRefId();
+        }, platform));
+
+        try {
+            final var events = new LoadGenerator(config, target).run().operation("event");
+
+            // Everything due during the stall waited for it, measured from when it was due to be sent
+            assertTrue(events.latencyMillis(75) >= 150, "p75 was " + events.latencyMillis(75));
+            assertTrue(events.latencyMillis(100) >= 450, "max was " + events.latencyMillis(100));
+        } finally {
+            platform.shutdownNow();
+        }
+    }
+
+    @Test
+    void dropsArrivalsBeyondMaxOutstanding() throws Exception {
+        final var config = LoadGeneratorConfig.fromArgs("--members=1", "--eventsPerSecond=100", "--warmup=0", "--duration=0.5",
+                "--maxOutstanding=5");
+        final var target = new InMemoryTarget(event -> new CompletableFuture<>().completeOnTimeout(null, 2, TimeUnit.SECONDS));
+
+        final var events = new LoadGenerator(config, target).run().operation("event");
+
+        assertEquals(5, events.completed());
+        assertEquals(45, events.dropped(), 1);
+    }
+
+    @Test
+    void unansweredRequestsAreRecordedAsTimedOut() throws Exception {
+        final var config = LoadGeneratorConfig.fromArgs("--members=1", "--eventsPerSecond=100", "--warmup=0", "--duration=0.2");
+        final var target = new InMemoryTarget(event -> new CompletableFuture<>());
+
+        final var report = new LoadGenerator(config, target, Duration.ofMillis(300)).run();
+        final var events = report.operation("event");
+
+        // Never answered, so each is recorded at least as late as the drain timeout
+        assertEquals(20, events.timedOut(), 1);
+        assertEquals(0, events.completed());
+        assertEquals(events.timedOut(), events.latency().getTotalCount());
+        assertTrue(events.latencyMillis(0) >= 300, "min was " + events.latencyMillis(0));
+        assertTrue(report.toString().contains("target: InMemoryTarget"));
+    }
+
+    @Test
+    void argumentsOverrideTheConfigFile() throws Exception {
+        final var file = Files.createTempFile("load", ".properties");
+        try {
+            Files.writeString(file, "members=50\neventsPerSecond=10\ntarget=ziqni\napiKey=secret-key\nspace=demo\n");
+            final var config = LoadGeneratorConfig.fromArgs("--config=" + file, "--eventsPerSecond=25", "--duration=PT2M");
+
+            assertEquals(LoadGeneratorConfig.Mode.LOAD, config.mode());
+            assertEquals(LoadGeneratorConfig.Target.ZIQNI, config.target());
+            assertEquals(50, config.members());
+            assertEquals(25, config.eventsPerSecond());
+            assertEquals(Duration.ofMinutes(2), config.duration());
+            assertEquals("load-member-7", config.memberRefId(7));
+            assertEquals(Path.of("load-results"), config.output());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void theZiqniTargetNeedsCredentials() {
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorConfig.fromArgs("--target=ziqni"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorConfig.fromArgs("members=10"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class InMemoryTarget implements LoadTarget {
+        private final Function<CreateEventRequest, CompletableFuture<?>> events;
+        private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+        private InMemoryTarget(Function<CreateEventRequest, CompletableFuture<?>> events) {
+            this.events = events;
+        }
+
+        @Override
+        public CompletableFuture<?> openSession(String memberRefId) {
+            sessions.add(memberRefId);
+            return CompletableFuture.completedFuture(memberRefId);
+        }
+
+        @Override
+        public CompletableFuture<?> sendEvent(CreateEventRequest event) {
+            return events.apply(event);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ziqni.member;
+
+import com.ziqni.member.sdk.model.Competition;
+import com.ziqni.member.sdk.model.Contest;
+import com.ziqni.member.sdk.model.Reward;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompetitionCatalogueLoaderTest {
+
+    @Test
+    void loadsTheWholeGraphInBatchedRoundTrips() {
+        final var contestRequests = Collections.synchronizedList(new ArrayList<List<String>>());
+        final var rewardRequests = Collections.synchronizedList(new ArrayList<List<String>>());
+
+        // Two contests per competition, one reward per contest
+        final var loader = new CompetitionCatalogueLoader(
+                (competitionIds, skip) -> {
+                    contestRequests.add(List.copyOf(competitionIds));
+                    final var contests = competitionIds.stream()
+                            .flatMap(id -> IntStream.range(0, 2).mapToObj(i -> new Contest().id(id + "-contest-" + i).competitionId(id)))
+                            .skip(skip)
+                            .limit(10)
+                            .toList();
+                    return CompletableFuture.completedFuture(contests);
+                },
+                (contestIds, skip) -> {
+                    rewardRequests.add(List.copyOf(contestIds));
+                    final var rewards = contestIds.stream()
+                            .map(id -> new Reward().id(id + "-reward").entityId(id))
+                            .skip(skip)
+                            .limit(10)
+                            .toList();
+                    return CompletableFuture.completedFuture(rewards);
+                },
+                4,
+                10
+        );
+
+        final var competitions = IntStream.range(0, 6).mapToObj(i -> new Competition().id("competition-" + i)).toList();
+        final List<String> seen = Collections.synchronizedList(new ArrayList<>());
+
+        final var catalogue = loader.load(competitions, contest -> seen.add(contest.getId())).join();
+
+        assertEquals(2, contestRequests.size());
+        assertEquals(List.of("competition-0", "competition-1", "competition-2", "competition-3"), contestRequests.get(0));
+        assertEquals(12, seen.size());
+        assertEquals(2, catalogue.contests("competition-5").size());
+        assertEquals(1, catalogue.rewards("competition-5-contest-1").size());
+        assertEquals(12, catalogue.rewardsByContest().size());
+        assertEquals(contestRequests.size() + rewardRequests.size(), catalogue.roundTrips());
+        assertTrue(catalogue.roundTrips() < 12);
+    }
+}
@@ -1,7 +1,15 @@
 package com.ziqni.member;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class MemberAccessTokenServiceTest {
@@ -13,4 +21,37 @@ class MemberAccessTokenServiceTest {
 
         assertTrue(!token.getErrors().isEmpty());
     }
+
+    @Test
+    void getTokenAsyncParsesTheTokenAndKeepsErrorBodies() throws Exception {
+        final var server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/member-token", exchange -> {
+            try (exchange) {
+                final var request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                final var rejected = request.contains("\"unknown-member\"");
+                final var body = (rejected
+                        ? "{\"errors\":[{\"errorCode\":3214,\"message\":\"error.at_least_member_id_or_member_ref_id_should_exist\"}]}"
+                        : "{\"data\":{\"jwtToken\":\"header.payload.signature\"},\"errors\":[]}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(rejected ? 400 : 200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        });
+        server.start();
+
+        MemberAccessTokenService.setTokenUri(URI.create("http://localhost:" + server.getAddress().getPort() + "/member-token"));
+        try {
+            final var token = MemberAccessTokenService.getTokenAsync("member-1", "api-key").get(5, TimeUnit.SECONDS);
+            assertEquals("header.payload.signature", token.getData().getJwtToken());
+
+            final var failure = assertThrows(CompletionException.class,
+                    () -> MemberAccessTokenService.getTokenAsync("unknown-member", "api-key").orTimeout(5, TimeUnit.SECONDS).join());
+            final var rejected = assertInstanceOf(MemberAccessTokenService.MemberTokenException.class, failure.getCause());
+            assertEquals(400, rejected.getStatusCode());
+            assertTrue(rejected.getBody().contains("3214"));
+        } finally {
+            MemberAccessTokenService.setTokenUri(MemberAccessTokenService.DEFAULT_TOKEN_URI);
+            server.stop(0);
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.ziqni.member;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberBootstrapTest {
+
+    @Test
+    void gathersResultsAndReportsFailuresAndTimeoutsPerQuery() throws Exception {
+        final var bootstrap = new MemberBootstrap(Duration.ofSeconds(5));
+
+        final var member = bootstrap.query("member", () -> CompletableFuture.completedFuture("member-1"));
+        final var awards = bootstrap.query("awards", () -> CompletableFuture.<String>failedFuture(new IllegalStateException("boom")));
+        final var graph = bootstrap.query("graph", Duration.ofMillis(50), CompletableFuture<String>::new);
+
+        final var context = bootstrap.start().get(5, TimeUnit.SECONDS);
+
+        assertEquals("member-1", context.get(member));
+        assertNull(context.get(awards));
+        assertNull(context.get(graph));
+        assertFalse(context.isComplete());
+        assertEquals(
+                List.of(MemberBootstrap.Status.OK, MemberBootstrap.Status.FAILED, MemberBootstrap.Status.TIMED_OUT),
+                context.outcomes().stream().map(MemberBootstrap.Outcome::status).toList()
+        );
+        assertTrue(context.outcomes().get(2).latency().toMillis() >= 50);
+        assertTrue(member.result().isDone());
+        assertThrows(IllegalStateException.class, () -> bootstrap.query("late", () -> CompletableFuture.completedFuture(1)));
+    }
+}
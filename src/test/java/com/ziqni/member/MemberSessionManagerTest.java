@@ -0,0 +1,86 @@
+package com.ziqni.member;
+
+import com.ziqni.member.models.MemberTokenInfo;
+import com.ziqni.member.models.MemberTokenResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberSessionManagerTest {
+
+    private final AtomicInteger connects = new AtomicInteger();
+    private final Set<String> stopped = ConcurrentHashMap.newKeySet();
+
+    @Test
+    void reusesTheMembersSession() {
+        try (var tokens = tokenCache(); var manager = manager(tokens, 10, (memberRefId, token) -> connected(memberRefId))) {
+            final var first = manager.session("member-1").join();
+            final var second = manager.session("member-1").join();
+
+            assertSame(first, second);
+            assertEquals(1, connects.get());
+            assertEquals(1, manager.openSessions());
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedSessionAtTheCap() {
+        try (var tokens = tokenCache(); var manager = manager(tokens, 2, (memberRefId, token) -> connected(memberRefId))) {
+            manager.session("member-1").join();
+            manager.session("member-2").join();
+            manager.session("member-1").join();
+
+            manager.session("member-3").join();
+
+            assertEquals(Set.of("member-2"), stopped);
+            assertEquals(2, manager.openSessions());
+        }
+    }
+
+    @Test
+    void aFailedConnectIsNotCached() {
+        final var attempts = new AtomicInteger();
+        try (var tokens = tokenCache(); var manager = manager(tokens, 1, (memberRefId, token) -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(new IllegalStateException("NOT_STARTED"))
+                : connected(memberRefId))) {
+
+            assertThrows(Exception.class, () -> manager.session("member-1").join());
+            assertEquals(0, manager.openSessions());
+
+            // The failed attempt gave its socket back, so the only slot is free again
+            assertNotNull(manager.session("member-1").join());
+            assertEquals(2, attempts.get());
+            assertEquals(1, manager.openSessions());
+        }
+    }
+
+    private MemberSessionManager manager(MemberTokenCache tokens, int maxSessions,
+                                         BiFunction<String, String, CompletableFuture<MemberSessionManager.MemberSession>> connector) {
+        return new MemberSessionManager("api-key", tokens, maxSessions, Duration.ofHours(1), Duration.ofSeconds(1), connector);
+    }
+
+    private CompletableFuture<MemberSessionManager.MemberSession> connected(String memberRefId) {
+        connects.incrementAndGet();
+        return CompletableFuture.completedFuture(new MemberSessionManager.MemberSession(memberRefId, null, () -> stopped.add(memberRefId)));
+    }
+
+    private static MemberTokenCache tokenCache() {
+        return new MemberTokenCache(100, Duration.ofMinutes(1), request ->
+                CompletableFuture.completedFuture(new MemberTokenResponse().data(new MemberTokenInfo().jwtToken(jwt(System.currentTimeMillis() / 1000 + 3600)))));
+    }
+
+    private static String jwt(long exp) {
+        final var encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(("{\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8)) + ".";
+    }
+}
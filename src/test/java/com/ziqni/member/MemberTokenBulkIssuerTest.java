@@ -0,0 +1,79 @@
+package com.ziqni.member;
+
+import com.ziqni.member.models.MemberTokenInfo;
+import com.ziqni.member.models.MemberTokenRequest;
+import com.ziqni.member.models.MemberTokenResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberTokenBulkIssuerTest {
+
+    @Test
+    void neverExceedsMaxInFlight() {
+        final var inFlight = new AtomicInteger();
+        final var maxSeen = new AtomicInteger();
+        final var issuer = new MemberTokenBulkIssuer(3, 0, request -> {
+            maxSeen.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                return tokenResponse(request.getMember());
+            }, CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS));
+        });
+
+        final var results = issuer.issueAll(members(20), new MemberTokenRequest().apiKey("api-key")).join();
+
+        assertEquals(20, results.size());
+        assertTrue(results.stream().allMatch(MemberTokenBulkIssuer.Result::isSuccess));
+        assertTrue(maxSeen.get() <= 3, "max in flight was " + maxSeen.get());
+    }
+
+    @Test
+    void requestsAreNotSentBeforeTheirSlot() {
+        final var sentAt = new ArrayList<Long>();
+        final var issuer = new MemberTokenBulkIssuer(100, 50, request -> {
+            synchronized (sentAt) {
+                sentAt.add(System.nanoTime());
+            }
+            return CompletableFuture.completedFuture(tokenResponse(request.getMember()));
+        });
+
+        final var summary = issuer.issue(members(11), new MemberTokenRequest().apiKey("api-key"), result -> {}).join();
+
+        // 50 a second is one every 20ms, so eleven requests span at least 200ms however often the issuer is woken
+        assertEquals(11, summary.succeeded());
+        assertTrue(sentAt.get(10) - sentAt.get(0) >= TimeUnit.MILLISECONDS.toNanos(200),
+                "spread was " + TimeUnit.NANOSECONDS.toMillis(sentAt.get(10) - sentAt.get(0)) + "ms");
+    }
+
+    @Test
+    void failuresAreReportedNotThrown() {
+        final var issuer = new MemberTokenBulkIssuer(2, 0, request -> {
+            if(request.getMember().endsWith("1"))
+                throw new IllegalStateException("rejected");
+            if(request.getMember().endsWith("2"))
+                return CompletableFuture.completedFuture(new MemberTokenResponse());
+            return CompletableFuture.completedFuture(tokenResponse(request.getMember()));
+        });
+
+        final var summary = issuer.issue(members(4), new MemberTokenRequest().apiKey("api-key"), result -> {}).join();
+
+        assertEquals(4, summary.requested());
+        assertEquals(2, summary.failed());
+    }
+
+    private static List<String> members(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "member-" + i).toList();
+    }
+
+    private static MemberTokenResponse tokenResponse(String memberRefId) {
+        return new MemberTokenResponse().data(new MemberTokenInfo().jwtToken("token-" + memberRefId));
+    }
+}
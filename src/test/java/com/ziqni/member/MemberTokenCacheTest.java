@@ -0,0 +1,86 @@
+package com.ziqni.member;
+
+import com.ziqni.member.models.MemberTokenInfo;
+import com.ziqni.member.models.MemberTokenResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberTokenCacheTest {
+
+    @Test
+    void concurrentRequestsShareOneCall() {
+        final var calls = new AtomicInteger();
+        final var pending = new CompletableFuture<MemberTokenResponse>();
+
+        try (var cache = new MemberTokenCache(10, Duration.ofMinutes(1), request -> {
+            calls.incrementAndGet();
+            return pending;
+        })) {
+            final var first = cache.getToken("member-1", "api-key");
+            final var second = cache.getToken("member-1", "api-key");
+
+            pending.complete(tokenResponse(System.currentTimeMillis() / 1000 + 3600));
+
+            assertSame(first.join(), second.join());
+            assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        final var calls = new AtomicInteger();
+
+        try (var cache = new MemberTokenCache(2, Duration.ofMinutes(1), request -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(tokenResponse(System.currentTimeMillis() / 1000 + 3600));
+        })) {
+            cache.getToken("member-1", "api-key").join();
+            cache.getToken("member-2", "api-key").join();
+            cache.getToken("member-1", "api-key").join();
+            cache.getToken("member-3", "api-key").join();
+
+            assertEquals(2, cache.size());
+            assertEquals(3, calls.get());
+
+            cache.getToken("member-2", "api-key").join();
+            assertEquals(4, calls.get());
+        }
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        final var calls = new AtomicInteger();
+
+        try (var cache = new MemberTokenCache(10, Duration.ofMinutes(1), request -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(new MemberTokenResponse());
+        })) {
+            assertThrows(Exception.class, () -> cache.getToken("member-1", "api-key").join());
+            assertThrows(Exception.class, () -> cache.getToken("member-1", "api-key").join());
+            assertEquals(2, calls.get());
+        }
+    }
+
+    @Test
+    void expiresAtReadsExpClaim() {
+        final var exp = 1_900_000_000L;
+        assertEquals(exp * 1000, MemberTokenCache.expiresAt(jwt(exp), 3600));
+    }
+
+    private static MemberTokenResponse tokenResponse(long exp) {
+        return new MemberTokenResponse().data(new MemberTokenInfo().jwtToken(jwt(exp)));
+    }
+
+    private static String jwt(long exp) {
+        final var encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(("{\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8)) + ".";
+    }
+}
@@ -0,0 +1,76 @@
+package com.ziqni.member.inbound;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboundPipelineTest {
+
+    @Test
+    void routesEveryMessageToEachConsumerInOrderAcrossWraps() throws Exception {
+        final List<String> leaderboards = new ArrayList<>();
+        final List<String> everything = new ArrayList<>();
+        final var done = new CountDownLatch(2);
+        final var messages = 100;
+
+        try (var pipeline = InboundPipeline.builder(8)
+                .waitStrategy(WaitStrategy.blocking())
+                .consumer("leaderboards")
+                    .<String>on(InboundType.LEADERBOARD_UPDATE, (message, sequence, endOfBatch) -> {
+                        leaderboards.add(message);
+                        if(sequence == messages - 2)
+                            done.countDown();
+                    })
+                    .add()
+                .consumer("all")
+                    .<String>on(InboundType.LEADERBOARD_UPDATE, (message, sequence, endOfBatch) -> everything.add(message))
+                    .<String>on(InboundType.NOTIFICATION, (message, sequence, endOfBatch) -> {
+                        everything.add(message);
+                        if(sequence == messages - 1)
+                            done.countDown();
+                    })
+                    .add()
+                .build()) {
+
+            for (int i = 0; i < messages; i++) {
+                final var type = i % 2 == 0 ? InboundType.LEADERBOARD_UPDATE : InboundType.NOTIFICATION;
+                assertEquals(i, pipeline.publish(type, "m-" + i));
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(messages / 2, leaderboards.size());
+            assertEquals("m-98", leaderboards.get(leaderboards.size() - 1));
+            assertEquals(messages, everything.size());
+            for (int i = 0; i < messages; i++)
+                assertEquals("m-" + i, everything.get(i));
+        }
+    }
+
+    @Test
+    void tryPublishFailsWhenTheSlowestConsumerIsAFullRingBehind() throws Exception {
+        final var release = new CountDownLatch(1);
+        try (var pipeline = InboundPipeline.builder(4)
+                .waitStrategy(WaitStrategy.yielding())
+                .consumer("stuck")
+                    .on(InboundType.NOTIFICATION, (message, sequence, endOfBatch) -> {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    })
+                    .add()
+                .build()) {
+
+            for (int i = 0; i < 4; i++)
+                assertTrue(pipeline.tryPublish(InboundType.NOTIFICATION, i));
+            assertFalse(pipeline.tryPublish(InboundType.NOTIFICATION, 4));
+            release.countDown();
+        }
+    }
+}
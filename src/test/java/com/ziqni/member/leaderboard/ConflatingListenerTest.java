@@ -0,0 +1,50 @@
+package com.ziqni.member.leaderboard;
+
+import com.ziqni.member.sdk.model.Leaderboard;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConflatingListenerTest {
+
+    @Test
+    void deliversOnlyTheNewestPendingUpdatePerLeaderboard() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor manual = tasks::add;
+        final List<String> received = new ArrayList<>();
+
+        final var listener = new ConflatingListener(leaderboard -> received.add(leaderboard.getId() + ":" + leaderboard.getName()), manual);
+        listener.accept(new Leaderboard().id("a").name("1"));
+        listener.accept(new Leaderboard().id("a").name("2"));
+        listener.accept(new Leaderboard().id("b").name("1"));
+        listener.accept(new Leaderboard().id("a").name("3"));
+
+        // One drain is scheduled however many updates arrive while it is pending
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+
+        assertEquals(2, received.size());
+        assertTrue(received.containsAll(List.of("a:3", "b:1")));
+        assertEquals(2, listener.conflated());
+        assertEquals(2, listener.delivered());
+        assertEquals(0, listener.dropped());
+    }
+
+    @Test
+    void countsPendingAndLateUpdatesAsDroppedOnClose() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final var listener = new ConflatingListener(leaderboard -> fail("closed"), tasks::add);
+
+        listener.accept(new Leaderboard().id("a"));
+        listener.close();
+        listener.accept(new Leaderboard().id("a"));
+        tasks.forEach(Runnable::run);
+
+        assertEquals(2, listener.dropped());
+        assertEquals(0, listener.delivered());
+    }
+}
@@ -0,0 +1,137 @@
+package com.ziqni.member.leaderboard;
+
+import com.ziqni.member.sdk.model.LeaderboardEntry;
+import com.ziqni.member.sdk.model.LeaderboardMember;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardDiffEngineTest {
+
+    @Test
+    void classifiesEveryKindOfChange() {
+        final var previous = new LeaderboardTable(4);
+        previous.put("alice", 1, 100.0);
+        previous.put("bob", 2, 90.0);
+        previous.put("carol", 3, 80.0);
+        previous.put("dave", 4, 70.0);
+
+        final var current = new LeaderboardTable(4);
+        current.put("bob", 1, 120.0);
+        current.put("alice", 2, 100.0);
+        current.put("carol", 3, 85.0);
+        current.put("erin", 4, 75.0);
+
+        final Map<String, LeaderboardDelta.Kind> kinds = LeaderboardDiffEngine.diff(previous, current).stream()
+                .collect(Collectors.toMap(LeaderboardDelta.Change::participant, LeaderboardDelta.Change::kind));
+
+        assertEquals(Map.of(
+                "bob", LeaderboardDelta.Kind.MOVED_UP,
+                "alice", LeaderboardDelta.Kind.MOVED_DOWN,
+                "carol", LeaderboardDelta.Kind.SCORE_CHANGED,
+                "erin", LeaderboardDelta.Kind.NEW,
+                "dave", LeaderboardDelta.Kind.DROPPED
+        ), kinds);
+    }
+
+    @Test
+    void unchangedLeaderboardHasEmptyDelta() {
+        final var previous = new LeaderboardTable(2);
+        final var current = new LeaderboardTable(2);
+        for (var table : new LeaderboardTable[]{previous, current}) {
+            table.put("alice", 1, 100.0);
+            table.put("bob", 2, 90.0);
+        }
+
+        assertTrue(LeaderboardDiffEngine.diff(previous, current).isEmpty());
+    }
+
+    @Test
+    void membersSharingANameAreSeparateParticipants() {
+        final var engine = new LeaderboardDiffEngine();
+        final var bob = new LeaderboardMember().memberId("m-1").memberRefId("bob-1").name("Bob");
+        final var otherBob = new LeaderboardMember().memberId("m-2").memberRefId("bob-2").name("Bob");
+        final var refOnly = new LeaderboardMember().memberRefId("carol").name("Carol");
+        final var anonymous = new LeaderboardMember().name("Nobody");
+
+        final var first = engine.update("board", List.of(
+                new LeaderboardEntry().rank(1).score(100.0).members(List.of(bob)),
+                new LeaderboardEntry().rank(2).score(90.0).members(Arrays.asList(otherBob, anonymous, null)),
+                new LeaderboardEntry().rank(3).score(80.0).members(List.of(refOnly))));
+
+        assertEquals(3, first.changes().size());
+        final var snapshot = engine.snapshot("board");
+        assertEquals(1, snapshot.rankOf("m-1"));
+        assertEquals(2, snapshot.rankOf("m-2"));
+        assertEquals(3, snapshot.rankOf("ref:carol"));
+
+        // Only the second Bob moved
+        final var second = engine.update("board", List.of(
+                new LeaderboardEntry().rank(1).score(100.0).members(List.of(bob)),
+                new LeaderboardEntry().rank(3).score(90.0).members(List.of(otherBob)),
+                new LeaderboardEntry().rank(2).score(85.0).members(List.of(refOnly))));
+
+        final Map<String, LeaderboardDelta.Kind> kinds = second.changes().stream()
+                .collect(Collectors.toMap(LeaderboardDelta.Change::participant, LeaderboardDelta.Change::kind));
+        assertEquals(Map.of("m-2", LeaderboardDelta.Kind.MOVED_DOWN, "ref:carol", LeaderboardDelta.Kind.MOVED_UP), kinds);
+    }
+
+    @Test
+    void snapshotsAreNeverTornByAConcurrentUpdate() throws Exception {
+        final var engine = new LeaderboardDiffEngine();
+        engine.update("board", entries(0));
+
+        // Every update has its own size and gives all participants its number as score, a torn copy mixes them
+        final var writer = Thread.ofPlatform().start(() -> {
+            for (int update = 1; update <= 20_000; update++)
+                engine.update("board", entries(update));
+        });
+
+        long checked = 0;
+        while (writer.isAlive() || checked == 0) {
+            final var snapshot = engine.snapshot("board");
+            final var update = (int) snapshot.score(0);
+            assertEquals(update % 97 + 1, snapshot.size(), "size of update " + update);
+            for (int i = 0; i < snapshot.size(); i++) {
+                assertEquals(update, snapshot.score(i), "score of participant " + i);
+                assertEquals(i + 1, snapshot.rank(i));
+            }
+            checked++;
+        }
+        writer.join();
+
+        // Copies, not the arrays the snapshot reads from
+        final var snapshot = engine.snapshot("board");
+        snapshot.scores()[0] = -1;
+        snapshot.participants()[0] = null;
+        assertEquals(20_000, snapshot.score(0));
+        assertNotNull(snapshot.participant(0));
+    }
+
+    private static List<LeaderboardEntry> entries(int update) {
+        return IntStream.range(0, update % 97 + 1)
+                .mapToObj(i -> new LeaderboardEntry().rank(i + 1).score((double) update)
+                        .members(List.of(new LeaderboardMember().memberId("member-" + i))))
+                .toList();
+    }
+
+    @Test
+    void tableGrowsAndClears() {
+        final var table = new LeaderboardTable(1);
+        for (int i = 0; i < 1000; i++)
+            table.put("member-" + i, i + 1, i);
+
+        assertEquals(1000, table.size());
+        assertEquals(501, table.rankAt(table.indexOf("member-500")));
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(-1, table.indexOf("member-500"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.ziqni.member.leaderboard;
+
+import com.ziqni.member.sdk.model.Leaderboard;
+import com.ziqni.member.sdk.model.LeaderboardFilter;
+import com.ziqni.member.sdk.model.LeaderboardSubscriptionRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardMultiplexerTest {
+
+    @Test
+    void sharesOneServerSubscriptionBetweenListeners() {
+        final List<LeaderboardSubscriptionRequest> requests = new ArrayList<>();
+        final var multiplexer = new LeaderboardMultiplexer(request -> {
+            requests.add(request);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        final List<String> received = new ArrayList<>();
+        final var first = multiplexer.subscribe("contest-1", filter(), leaderboard -> received.add("first"));
+        final var second = multiplexer.subscribe("contest-1", filter(), leaderboard -> received.add("second"));
+
+        assertEquals(1, multiplexer.serverSubscriptions());
+        assertEquals(2, multiplexer.listeners("contest-1", filter()));
+        assertEquals(1, requests.size());
+
+        multiplexer.onLeaderboardUpdate(new Leaderboard().id("contest-1"));
+        multiplexer.onLeaderboardUpdate(new Leaderboard().id("contest-2"));
+        assertEquals(List.of("first", "second"), received);
+
+        first.close();
+        assertEquals(1, requests.size());
+        second.close();
+        second.close();
+
+        assertEquals(0, multiplexer.serverSubscriptions());
+        assertEquals(2, requests.size());
+        assertEquals(LeaderboardSubscriptionRequest.ActionEnum.UNSUBSCRIBE, requests.get(1).getAction());
+    }
+
+    @Test
+    void aSubscribeThatThrowsLeavesTheMultiplexerConsistent() {
+        final List<LeaderboardSubscriptionRequest> requests = new ArrayList<>();
+        final var multiplexer = new LeaderboardMultiplexer(request -> {
+            requests.add(request);
+            if(requests.size() == 1)
+                throw new IllegalStateException("Not connected");
+            return CompletableFuture.completedFuture("subscribed");
+        });
+
+        final List<String> received = new ArrayList<>();
+        final var failed = multiplexer.subscribe("contest-1", filter(), leaderboard -> received.add("failed"));
+
+        final var failure = assertThrows(CompletionException.class, () -> failed.subscribed().join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(0, multiplexer.serverSubscriptions());
+        multiplexer.onLeaderboardUpdate(new Leaderboard().id("contest-1"));
+        assertTrue(received.isEmpty());
+
+        final var retried = multiplexer.subscribe("contest-1", filter(), leaderboard -> received.add("retried"));
+        assertEquals("subscribed", retried.subscribed().join());
+        assertEquals(2, requests.size());
+        assertEquals(1, multiplexer.serverSubscriptions());
+
+        // Closing the failed registration leaves the retried subscription alone
+        failed.close();
+        assertEquals(1, multiplexer.listeners("contest-1", filter()));
+        multiplexer.onLeaderboardUpdate(new Leaderboard().id("contest-1"));
+        assertEquals(List.of("retried"), received);
+
+        retried.close();
+        assertEquals(0, multiplexer.serverSubscriptions());
+        assertEquals(LeaderboardSubscriptionRequest.ActionEnum.UNSUBSCRIBE, requests.get(2).getAction());
+    }
+
+    @Test
+    void resubscribesEverySharedSubscriptionInOrder() {
+        final List<String> requests = new ArrayList<>();
+        final var multiplexer = new LeaderboardMultiplexer(request -> {
+            requests.add(request.getAction() + " " + request.getEntityId());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        multiplexer.subscribe("contest-1", filter(), leaderboard -> {});
+        multiplexer.subscribe("contest-1", filter(), leaderboard -> {});
+        final var second = multiplexer.subscribe("contest-2", filter(), leaderboard -> {});
+        second.close();
+        multiplexer.subscribe("contest-2", filter(), leaderboard -> {});
+
+        assertEquals(2, multiplexer.resubscribe());
+        assertEquals(List.of("subscribe contest-1", "subscribe contest-2", "unsubscribe contest-2", "subscribe contest-2"),
+                requests.subList(0, 4).stream().map(String::toLowerCase).toList());
+        assertEquals(6, requests.size());
+        assertTrue(requests.subList(4, 6).stream().allMatch(request -> request.toLowerCase().startsWith("subscribe")));
+    }
+
+    private static LeaderboardFilter filter() {
+        return new LeaderboardFilter()
+                .ranksBelowToInclude(5)
+                .ranksAboveToInclude(5)
+                .topRanksToInclude(10);
+    }
+}
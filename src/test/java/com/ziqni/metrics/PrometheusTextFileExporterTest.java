@@ -0,0 +1,92 @@
+package com.ziqni.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrometheusTextFileExporterTest {
+
+    @Test
+    void sameNameAndLabelsReturnTheSameMeter() {
+        final var registry = new SimpleMetricsRegistry();
+        final var counter = registry.counter("ziqni_event_errors_total", "Errors", "code", "3214");
+
+        assertSame(counter, registry.counter("ziqni_event_errors_total", "Errors", "code", "3214"));
+        assertNotSame(counter, registry.counter("ziqni_event_errors_total", "Errors", "code", "3226"));
+        assertThrows(IllegalArgumentException.class, () -> registry.timer("ziqni_event_errors_total", "Errors", "code", "3214"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("unpaired", "Labels", "code"));
+    }
+
+    @Test
+    void removesOnlyTheGaugeStillRegistered() {
+        final var registry = new SimpleMetricsRegistry();
+        final var closed = registry.gauge("ziqni_member_sessions", "Sessions", () -> 1);
+        final var current = registry.gauge("ziqni_member_sessions", "Sessions", () -> 2);
+
+        registry.remove(closed);
+        assertEquals(1, registry.meters().size());
+        registry.remove(current);
+        assertTrue(registry.meters().isEmpty());
+    }
+
+    @Test
+    void writesCountersAndGaugesOncePerFamily() {
+        final var registry = new SimpleMetricsRegistry();
+        registry.counter("ziqni_event_errors_total", "Events rejected", "code", "3214", "source", "platform").increment(3);
+        registry.counter("ziqni_event_errors_total", "Events rejected", "code", "3226", "source", "client").increment();
+        registry.gauge("ziqni_event_publisher_queued", "Queued", () -> 7);
+
+        final var text = PrometheusTextFileExporter.format(registry.meters());
+
+        assertEquals(1, text.split("# TYPE ziqni_event_errors_total counter", -1).length - 1);
+        assertTrue(text.contains("ziqni_event_errors_total{code=\"3214\",source=\"platform\"} 3\n"));
+        assertTrue(text.contains("ziqni_event_errors_total{code=\"3226\",source=\"client\"} 1\n"));
+        assertTrue(text.contains("# TYPE ziqni_event_publisher_queued gauge\nziqni_event_publisher_queued 7\n"));
+    }
+
+    @Test
+    void writesCumulativeHistogramBucketsInSeconds() {
+        final var registry = new SimpleMetricsRegistry();
+        final var timer = registry.timer("ziqni_create_events_seconds", "Round trip", "client", "a\"b");
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1)); // On a bound, counted in that bucket
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+        timer.record(TimeUnit.SECONDS.toNanos(60)); // Above every bound
+
+        final var text = PrometheusTextFileExporter.format(registry.meters());
+
+        assertTrue(text.contains("ziqni_create_events_seconds_bucket{client=\"a\\\"b\",le=\"0.0005\"} 0\n"), text);
+        assertTrue(text.contains("ziqni_create_events_seconds_bucket{client=\"a\\\"b\",le=\"0.001\"} 1\n"), text);
+        assertTrue(text.contains("ziqni_create_events_seconds_bucket{client=\"a\\\"b\",le=\"0.005\"} 2\n"), text);
+        assertTrue(text.contains("ziqni_create_events_seconds_bucket{client=\"a\\\"b\",le=\"30\"} 2\n"), text);
+        assertTrue(text.contains("ziqni_create_events_seconds_bucket{client=\"a\\\"b\",le=\"+Inf\"} 3\n"), text);
+        assertTrue(text.contains("ziqni_create_events_seconds_count{client=\"a\\\"b\"} 3\n"), text);
+        assertTrue(text.contains("ziqni_create_events_seconds_sum{client=\"a\\\"b\"} 60.004\n"), text);
+    }
+
+    @Test
+    void replacesTheFileWhole() throws Exception {
+        final var directory = Files.createTempDirectory("metrics");
+        final var file = directory.resolve("ziqni.prom");
+        final var registry = new SimpleMetricsRegistry();
+        final var counter = registry.counter("ziqni_callbacks_total", "Callbacks", "handler", "entityChanged");
+
+        try (var reporter = new MetricsReporter(registry, new PrometheusTextFileExporter(file), Duration.ofHours(1))) {
+            counter.increment();
+            reporter.export();
+            assertTrue(Files.readString(file).contains("ziqni_callbacks_total{handler=\"entityChanged\"} 1\n"));
+            counter.increment();
+        }
+
+        // Closing exports once more
+        assertTrue(Files.readString(file).contains("ziqni_callbacks_total{handler=\"entityChanged\"} 2\n"));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        Files.delete(file);
+        Files.delete(directory);
+    }
+}
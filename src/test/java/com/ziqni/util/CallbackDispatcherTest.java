@@ -0,0 +1,136 @@
+package com.ziqni.util;
+
+import com.ziqni.metrics.SimpleMetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallbackDispatcherTest {
+
+    @Test
+    void keepsMessagesForTheSameKeyInOrder() throws Exception {
+        final var executor = Executors.newVirtualThreadPerTaskExecutor();
+        final var dispatcher = new CallbackDispatcher(executor, Duration.ofHours(1), new SimpleMetricsRegistry());
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+        final var handler = dispatcher.<Void, String>dispatching("test", message -> message.substring(0, 1), (headers, message) -> {
+            if(message.endsWith("-0"))
+                sleep(20); // Later messages for the key queue up behind it
+            handled.add(message);
+        });
+
+        for (int i = 0; i < 10; i++) {
+            handler.accept(null, "a-" + i);
+            handler.accept(null, "b-" + i);
+        }
+
+        // Everything submitted has run, stats recorded and lanes dropped, once the executor terminates
+        dispatcher.close();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("a-0", "a-1", "a-2", "a-3", "a-4", "a-5", "a-6", "a-7", "a-8", "a-9"),
+                handled.stream().filter(message -> message.startsWith("a")).toList());
+        assertEquals(List.of("b-0", "b-1", "b-2", "b-3", "b-4", "b-5", "b-6", "b-7", "b-8", "b-9"),
+                handled.stream().filter(message -> message.startsWith("b")).toList());
+        assertEquals(0, dispatcher.activeKeys());
+
+        final var stats = dispatcher.stats().get(0);
+        assertEquals("test", stats.handler());
+        assertEquals(20, stats.invocations());
+        assertEquals(0, stats.overBudget());
+    }
+
+    @Test
+    void aFailedMessageDoesNotStopTheRestOfItsKey() throws Exception {
+        final var executor = Executors.newVirtualThreadPerTaskExecutor();
+        final var dispatcher = new CallbackDispatcher(executor, Duration.ofHours(1), new SimpleMetricsRegistry());
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+        final var handler = dispatcher.<Void, String>dispatching("test", message -> "key", (headers, message) -> {
+            if(message.equals("runtime"))
+                throw new IllegalStateException(message);
+            if(message.equals("error"))
+                throw new AssertionError(message);
+            handled.add(message);
+        });
+
+        for (String message : List.of("first", "runtime", "second", "error", "third"))
+            handler.accept(null, message);
+
+        dispatcher.close();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("first", "second", "third"), handled);
+        assertEquals(1, dispatcher.stats().get(0).failures());
+        assertEquals(0, dispatcher.activeKeys());
+    }
+
+    @Test
+    void dropsMessagesForAKeyThatIsFull() throws Exception {
+        final var executor = Executors.newVirtualThreadPerTaskExecutor();
+        final var registry = new SimpleMetricsRegistry();
+        final var dispatcher = new CallbackDispatcher(executor, Duration.ofHours(1), registry, 2);
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        final var release = new CountDownLatch(1);
+
+        final var handler = dispatcher.<Void, String>dispatching("test", message -> message.substring(0, 1), (headers, message) -> {
+            if(message.equals("a-0"))
+                await(release); // Holds the key full while the rest arrive
+            handled.add(message);
+        });
+
+        for (String message : List.of("a-0", "a-1", "a-2", "a-3", "b-0"))
+            handler.accept(null, message);
+        release.countDown();
+
+        dispatcher.close();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("a-0", "a-1"), handled.stream().filter(message -> message.startsWith("a")).toList());
+        assertTrue(handled.contains("b-0"));
+        assertEquals(2, dispatcher.stats().get(0).dropped());
+        assertEquals(0, dispatcher.activeKeys());
+        assertEquals(2, registry.counter("ziqni_callback_dropped_total", "Dropped", "handler", "test").count());
+    }
+
+    @Test
+    void countsRunsOverBudget() throws Exception {
+        final var executor = Executors.newVirtualThreadPerTaskExecutor();
+        final var dispatcher = new CallbackDispatcher(executor, Duration.ofMillis(5), new SimpleMetricsRegistry());
+
+        // Only the one message is slow, so nothing else can land over the budget
+        dispatcher.<Void, String>dispatching("slow", message -> message, (headers, message) -> sleep(50)).accept(null, "a");
+
+        dispatcher.close();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        final var stats = dispatcher.stats().get(0);
+        assertEquals(1, stats.invocations());
+        assertEquals(1, stats.overBudget());
+        assertTrue(stats.max().toMillis() >= 50);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ziqni.util;
+
+import com.ziqni.metrics.SimpleMetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallbackLogTest {
+
+    private record Line(String thread, String format, List<Object> arguments) {}
+
+    private final List<Line> lines = new CopyOnWriteArrayList<>();
+
+    @Test
+    void writesParameterisedLinesOffTheCallingThread() {
+        final var log = CallbackLog.builder(logger(true)).encoder(model -> "{\"id\":\"" + model + "\"}").metrics(new SimpleMetricsRegistry()).build();
+
+        log.info("entityChanged", "e-1");
+        log.close();
+
+        assertEquals(1, lines.size());
+        assertEquals("callback-log", lines.get(0).thread());
+        assertEquals("{} {}", lines.get(0).format());
+        assertEquals(List.of("entityChanged", "{\"id\":\"e-1\"}"), lines.get(0).arguments());
+    }
+
+    @Test
+    void samplesOneInEveryN() {
+        final var metrics = new SimpleMetricsRegistry();
+        final var log = CallbackLog.builder(logger(true)).encoder(String::valueOf).sample("leaderboardUpdate", 3).metrics(metrics).build();
+
+        for (int i = 0; i < 9; i++) {
+            log.info("leaderboardUpdate", i);
+            log.info("notification", i);
+        }
+        log.close();
+
+        assertEquals(List.of("0", "3", "6"), lines.stream()
+                .filter(line -> line.arguments().get(0).equals("leaderboardUpdate"))
+                .map(line -> line.arguments().get(1))
+                .toList());
+        assertEquals(9, lines.stream().filter(line -> line.arguments().get(0).equals("notification")).count());
+        assertEquals(6, metrics.counter("ziqni_callback_log_skipped_total", "", "reason", "sampled").count());
+    }
+
+    @Test
+    void encodesNothingWhenInfoIsOff() {
+        final var encoded = new AtomicInteger();
+        final var log = CallbackLog.builder(logger(false)).encoder(model -> {
+            encoded.incrementAndGet();
+            return "";
+        }).metrics(new SimpleMetricsRegistry()).build();
+
+        log.info("entityChanged", "e-1");
+        log.close();
+
+        assertEquals(0, encoded.get());
+        assertEquals(0, log.queued());
+    }
+
+    @Test
+    void dropsRatherThanBlocksWhenTheQueueIsFull() throws Exception {
+        final var metrics = new SimpleMetricsRegistry();
+        final var writing = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var log = CallbackLog.builder(logger(true)).capacity(2).metrics(metrics).encoder(model -> {
+            writing.countDown();
+            awaitQuietly(release);
+            return String.valueOf(model);
+        }).build();
+
+        log.info("entityChanged", 0);
+        assertTrue(writing.await(5, TimeUnit.SECONDS)); // The writer holds the first message
+        for (int i = 1; i <= 5; i++)
+            log.info("entityChanged", i);
+
+        release.countDown();
+        log.close();
+
+        assertEquals(3, lines.size());
+        assertEquals(3, metrics.counter("ziqni_callback_log_skipped_total", "", "reason", "queue_full").count());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records info calls, answers the level check with the given value.
+     */
+    private Logger logger(boolean infoEnabled) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isInfoEnabled":
+                    return infoEnabled;
+                case "info":
+                    if(args.length == 3)
+                        lines.add(new Line(Thread.currentThread().getName(), (String) args[0], List.of(args[1], args[2])));
+                    return null;
+                case "getName":
+                    return "test";
+                default:
+                    return method.getReturnType() == boolean.class ? false : null;
+            }
+        });
+    }
+}